@@ -0,0 +1,39 @@
+package csv;
+
+import models.Dictionary;
+import models.Instruction;
+import models.dao.InstructionCSVDAO;
+import org.openjdk.jmh.annotations.*;
+import utils.benchmark.BenchmarkData;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVAccessorBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int rows;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private InstructionCSVDAO instructionCsvDAO;
+
+    @Setup
+    public void setUp() throws IOException {
+        String csvFilePath = BenchmarkData.csvFile(rows, 1000).toString();
+        instructionCsvDAO = new InstructionCSVDAO(new CSVAccessorConfig(csvFilePath, parallelism), new Dictionary<>());
+    }
+
+    @Benchmark
+    public List<Instruction> read() {
+        return instructionCsvDAO.read();
+    }
+}
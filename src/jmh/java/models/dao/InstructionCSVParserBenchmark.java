@@ -0,0 +1,46 @@
+package models.dao;
+
+import models.Dictionary;
+import models.Instruction;
+import org.openjdk.jmh.annotations.*;
+import utils.benchmark.BenchmarkData;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static models.dao.InstructionCSVFields.ReceivedDate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstructionCSVParserBenchmark {
+
+    private Map<String, String> record;
+    private Dictionary<String> entities;
+
+    @Setup
+    public void setUp() {
+        record = BenchmarkData.record(BenchmarkData.instructions(1, 1).get(0));
+        entities = new Dictionary<>();
+    }
+
+    @Benchmark
+    public Instruction parse() {
+        return InstructionCSVParser.parse(record);
+    }
+
+    @Benchmark
+    public Instruction parseWithEntities() {
+        LocalDate receivedDate = InstructionCSVParser.parseReceivedDate(record.get(ReceivedDate));
+        return InstructionCSVParser.parse(record, receivedDate, entities);
+    }
+
+    @Benchmark
+    public LocalDate parseReceivedDate() {
+        return InstructionCSVParser.parseReceivedDate(record.get(ReceivedDate));
+    }
+}
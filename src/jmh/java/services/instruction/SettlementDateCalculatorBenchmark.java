@@ -0,0 +1,46 @@
+package services.instruction;
+
+import models.Instruction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.benchmark.BenchmarkData;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementDateCalculatorBenchmark {
+
+    private static final int Instructions = 1024;
+
+    private SettlementDateCalculator settlementDateCalculator;
+    private List<Instruction> instructions;
+
+    @Setup
+    public void setUp() {
+        settlementDateCalculator = new SettlementDateCalculator();
+        instructions = BenchmarkData.instructions(Instructions, 100);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Instructions)
+    public void calculate(Blackhole blackhole) {
+        for (Instruction instruction : instructions)
+            blackhole.consume(settlementDateCalculator.calculate(instruction));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Instructions)
+    public void calculateEpochDay(Blackhole blackhole) {
+        for (Instruction instruction : instructions)
+            blackhole.consume(settlementDateCalculator.calculate(
+                    instruction.getSettlementDate().toEpochDay(),
+                    instruction.getReceivedDate().toEpochDay(),
+                    instruction.getCurrency()));
+    }
+}
@@ -0,0 +1,73 @@
+package services.instruction.report;
+
+import csv.CSVAccessorConfig;
+import models.Dictionary;
+import models.InstructionStore;
+import models.dao.InstructionCSVDAO;
+import org.openjdk.jmh.annotations.*;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+import utils.benchmark.BenchmarkData;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportServiceBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int entities;
+
+    private ReportService reportService;
+    private InstructionStore instructions;
+    private ReportIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        Dictionary<String> entities = new Dictionary<>();
+        InstructionCSVDAO instructionCsvDAO = new InstructionCSVDAO(
+                new CSVAccessorConfig(BenchmarkData.csvFile(rows, this.entities).toString()), entities);
+        reportService = new ReportService(
+                new SettlementDateCalculator(), new ValueCalculator(), instructionCsvDAO, entities,
+                new ReportCache(0), ReportService.NoRankLimit, new ReportTableSink(new Writer() {
+                    @Override
+                    public void write(char[] buffer, int offset, int length) {
+                    }
+
+                    @Override
+                    public void flush() {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                }));
+        instructions = instructionCsvDAO.load();
+        index = reportService.index(instructions);
+    }
+
+    @Benchmark
+    public void generateFromCSV() {
+        reportService.generateByReceivedDates(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Benchmark
+    public void generateFromStore() {
+        reportService.generateByReceivedDates(instructions, LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Benchmark
+    public void generateFromIndex() {
+        reportService.generateByReceivedDates(index, LocalDate.MIN, LocalDate.MAX);
+    }
+}
@@ -0,0 +1,99 @@
+package utils.benchmark;
+
+import models.Instruction;
+import models.InstructionType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * BenchmarkData generates synthetic data sets for benchmarks:
+ * - instructions of a given number of entities with received dates spread over two years
+ * - CSV files of such instructions in the format of Instructions.csv
+ * - uses a fixed seed, so every run measures the same data
+ */
+
+public class BenchmarkData {
+
+    private static long Seed = 42;
+    private static LocalDate FirstDate = LocalDate.of(2016, 1, 1);
+    private static int Days = 730;
+
+    private static DateTimeFormatter DateFormat = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static String Header = "Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit";
+    private static List<Currency> Currencies = currencies("SGD", "EUR", "AED", "SAR", "USD", "GBP");
+
+    private static List<Currency> currencies(String... codes) {
+        List<Currency> currencies = new ArrayList<>();
+        for (String code : codes)
+            currencies.add(Currency.getInstance(code));
+        return currencies;
+    }
+
+    public static List<Instruction> instructions(int count, int entityCount) {
+        Random random = new Random(Seed);
+        List<Instruction> instructions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate receivedDate = FirstDate.plusDays(random.nextInt(Days));
+            instructions.add(new Instruction(
+                    "Entity " + random.nextInt(entityCount),
+                    random.nextBoolean() ? InstructionType.BUY : InstructionType.SELL,
+                    BigDecimal.valueOf(random.nextInt(200) + 1, 2),
+                    Currencies.get(random.nextInt(Currencies.size())),
+                    receivedDate,
+                    receivedDate.plusDays(random.nextInt(7) - 2),
+                    random.nextInt(1000) + 1,
+                    BigDecimal.valueOf(random.nextInt(1_000_000), 2)
+            ));
+        }
+        return instructions;
+    }
+
+    public static Map<String, String> record(Instruction instruction) {
+        String[] header = Header.split(",");
+        String[] values = row(instruction);
+        Map<String, String> record = new HashMap<>();
+        for (int i = 0; i < header.length; i++)
+            record.put(header[i], values[i]);
+        return record;
+    }
+
+    public static Path csvFile(int count, int entityCount) throws IOException {
+        Path path = Files.createTempFile("instructions-" + count + "-", ".csv");
+        path.toFile().deleteOnExit();
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(Header);
+            writer.newLine();
+            for (Instruction instruction : instructions(count, entityCount)) {
+                writer.write(String.join(",", row(instruction)));
+                writer.newLine();
+            }
+        }
+        return path;
+    }
+
+    private static String[] row(Instruction instruction) {
+        return new String[]{
+                instruction.getEntity(),
+                instruction.getInstructionType().getName(),
+                instruction.getExchangeRate().toPlainString(),
+                instruction.getCurrency().getCurrencyCode(),
+                instruction.getReceivedDate().format(DateFormat),
+                instruction.getSettlementDate().format(DateFormat),
+                String.valueOf(instruction.getUnitQuantity()),
+                instruction.getUnitPrice().toPlainString()
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package utils.data;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapUtilsBenchmark {
+
+    @Param({"1000", "100000"})
+    private int entities;
+
+    private Map<Integer, BigDecimal> amounts;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        amounts = new HashMap<>();
+        for (int entityId = 0; entityId < entities; entityId++)
+            amounts.put(entityId, BigDecimal.valueOf(random.nextInt(entities), 2));
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> zipWithRankByValue() {
+        return MapUtils.zipWithRankByValue(amounts);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> zipWithTopRankByValue() {
+        return MapUtils.zipWithTopRankByValue(amounts, 50);
+    }
+}
@@ -1,10 +1,37 @@
 import csv.CSVAccessorConfig;
+import csv.CSVTail;
+import models.Dictionary;
+import models.Instruction;
 import models.dao.InstructionCSVDAO;
+import models.dao.InstructionDAO;
+import models.dao.InstructionRejects;
+import models.dao.InstructionSnapshotDAO;
+import models.dao.InstructionSnapshotWriter;
 import services.instruction.SettlementDateCalculator;
 import services.instruction.ValueCalculator;
+import services.instruction.report.ReportCSVSink;
+import services.instruction.report.ReportCache;
+import services.instruction.report.ReportJsonLinesSink;
+import services.instruction.report.ReportJsonSink;
 import services.instruction.report.ReportService;
+import services.instruction.report.ReportServer;
+import services.instruction.report.ReportSink;
+import services.instruction.report.ReportTableSink;
+import utils.metrics.PipelineMetrics;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
  * InstructionProcessor is a main class:
@@ -14,22 +41,131 @@ import java.time.LocalDate;
  *   generally a simple static class would be used for such a small project.
  *   Assuming that this is a part of a bigger project. In that case we would need a better way to manage dependencies.
  * - settings for CSVAccessorConfig dependency can be stored in a config file of our project instead of being hardcoded.
+ * - with "--snapshot <path>" arguments generates the report from a binary snapshot of the CSV file
+ *   (the snapshot is created or updated if it's missing, older than the CSV file or of an older format)
+ * - with "--serve <port>" arguments keeps instructions in memory and serves reports as JSON over HTTP on a local port
+ *   (f.e. GET http://localhost:8080/report?start=2016-01-01&end=2016-12-31), reloading them when the CSV file changes
+ * - with "--tail" argument follows the CSV file, printing the report again whenever new instructions are appended
+ * - exposes metrics of every stage of the report pipeline as JMX MBeans (see: PipelineMetrics)
+ * - with leading "--output <path>" arguments writes the report to a file instead of a console
+ *   (as CSV for a ".csv" file, as JSON lines for a ".jsonl" file, as a JSON document for a ".json" file,
+ *   as text tables otherwise)
+ * - with leading "--rejects <path>" arguments writes rows which can't be parsed to a CSV file with their errors
+ *   (rejected rows are counted by the field and the reason of an error and the counters are printed on exit)
+ * - with leading "--sketch <counters>" arguments ranks entities of the CSV file in a fixed amount of memory
+ *   (a sketch of the given number of counters per type, only entities confirmed to be the top ones are ranked)
  */
 
 public class InstructionProcessor {
 
+    private static String CSVFilePath = "src/main/resources/Instructions.csv";
+    private static long TailInterval = 1;
+    private static long ReloadInterval = 1;
+    private static int SketchCapacity = ReportService.NoSketch;
+
     private static ValueCalculator valueCalculator = new ValueCalculator();
     private static SettlementDateCalculator settlementDateCalculator = new SettlementDateCalculator();
 
-    private static CSVAccessorConfig CSVAccessorConfig = new CSVAccessorConfig("src/main/resources/Instructions.csv");
-    private static InstructionCSVDAO instructionCsvDAO = new InstructionCSVDAO(CSVAccessorConfig);
+    private static CSVAccessorConfig CSVAccessorConfig = new CSVAccessorConfig(
+            CSVFilePath,
+            Runtime.getRuntime().availableProcessors());
+    private static Dictionary<String> entities = new Dictionary<>();
+    private static InstructionRejects rejects = new InstructionRejects();
+    private static InstructionCSVDAO instructionCsvDAO = new InstructionCSVDAO(CSVAccessorConfig, entities, rejects);
+
+    private static ReportSink ConsoleSink = new ReportTableSink(new BufferedWriter(new OutputStreamWriter(System.out)));
+
+    public static void main(String args[]) throws IOException, InterruptedException {
+        PipelineMetrics.register();
+        if (args.length >= 2 && args[0].equals("--rejects")) {
+            rejects = new InstructionRejects(Paths.get(args[1]));
+            instructionCsvDAO = new InstructionCSVDAO(CSVAccessorConfig, entities, rejects);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(rejects::close));
+        if (args.length >= 2 && args[0].equals("--sketch")) {
+            SketchCapacity = parseSketchCapacity(args[1]);
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length >= 2 && args[0].equals("--output")) {
+            Path outputPath = Paths.get(args[1]);
+            try (Writer writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+                run(Arrays.copyOfRange(args, 2, args.length), createReportSink(outputPath, writer));
+            }
+        } else
+            run(args, ConsoleSink);
+    }
+
+    private static int parseSketchCapacity(String value) {
+        try {
+            int capacity = Integer.parseInt(value);
+            if (capacity > 0)
+                return capacity;
+        } catch (NumberFormatException e) {
+            // reported below as any other invalid capacity
+        }
+        throw new IllegalArgumentException("Sketch capacity '" + value + "' is expected to be a positive number");
+    }
+
+    private static void run(String args[], ReportSink reportSink) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals("--snapshot"))
+            generateFromSnapshot(Paths.get(args[1]), reportSink);
+        else if (args.length == 2 && args[0].equals("--serve"))
+            serve(Integer.parseInt(args[1]));
+        else if (args.length == 1 && args[0].equals("--tail"))
+            follow(createReportService(instructionCsvDAO, reportSink));
+        else
+            createReportService(instructionCsvDAO, reportSink).generateByReceivedDates(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    private static ReportService createReportService(InstructionDAO instructionDAO, ReportSink reportSink) {
+        return new ReportService(
+                settlementDateCalculator,
+                valueCalculator,
+                instructionDAO,
+                entities,
+                new ReportCache(),
+                ReportService.NoRankLimit,
+                SketchCapacity,
+                reportSink);
+    }
+
+    private static ReportSink createReportSink(Path outputPath, Writer writer) {
+        String fileName = outputPath.getFileName().toString();
+        if (fileName.endsWith(".csv"))
+            return new ReportCSVSink(writer);
+        else if (fileName.endsWith(".jsonl"))
+            return new ReportJsonLinesSink(writer);
+        else if (fileName.endsWith(".json"))
+            return new ReportJsonSink(writer);
+        else
+            return new ReportTableSink(writer);
+    }
+
+    private static void follow(ReportService reportService) throws IOException, InterruptedException {
+        try (CSVTail<Instruction> instructions = instructionCsvDAO.tailByReceivedDate(LocalDate.MIN, LocalDate.MAX)) {
+            reportService.follow(instructions, TailInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void serve(int port) throws IOException {
+        ReportServer reportServer = new ReportServer(
+                createReportService(instructionCsvDAO, ConsoleSink),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                ReloadInterval,
+                TimeUnit.SECONDS);
+        reportServer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(reportServer::close));
+        System.out.println("Serving reports on http://localhost:" + reportServer.getAddress().getPort() + ReportServer.ReportPath);
+    }
 
-    private static ReportService reportService = new ReportService(
-            settlementDateCalculator,
-            valueCalculator,
-            instructionCsvDAO);
+    private static void generateFromSnapshot(Path snapshotPath, ReportSink reportSink) throws IOException {
+        Path csvFilePath = Paths.get(CSVFilePath);
+        if (!InstructionSnapshotDAO.isSnapshot(snapshotPath)
+                || Files.getLastModifiedTime(snapshotPath).compareTo(Files.getLastModifiedTime(csvFilePath)) < 0)
+            InstructionSnapshotWriter.convert(instructionCsvDAO, snapshotPath);
 
-    public static void main(String args[]) {
-        reportService.generateByReceivedDates(LocalDate.MIN, LocalDate.MAX);
+        createReportService(new InstructionSnapshotDAO(snapshotPath, entities), reportSink)
+                .generateByReceivedDates(LocalDate.MIN, LocalDate.MAX);
     }
 }
@@ -1,43 +1,180 @@
 package csv;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import utils.FileVersion;
+import utils.metrics.PipelineMetrics;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * CSVAccessor is an abstract class which allows to get access to a CSV file to read any data from there:
- * - uses apache library to read CSV records from a CSV file
+ * - reads rows of a CSV file with the built-in tokenizer into a reusable row (see: CSVRowReader, CSVRow),
+ *   falls back to apache library for other dialects
  * - can be configured through CSVAccessorConfig class
- * - provides an interface for parsing CSV records into a generic type
+ * - provides an interface for parsing CSV rows into a generic type
+ *   (a custom parser can be used by a stream to skip rows before they are fully parsed)
+ * - streams records lazily, so only the record being parsed is kept in memory
+ *   (a stream has to be closed to release the underlying file)
+ * - can collect records on several threads, parsing chunks of a file in parallel (see: CSVChunkReader)
+ * - can read a CSV file split into several files (a directory or a glob), parsing the files in parallel
+ *   and merging their partial results (see: CSVShardReader)
+ * - reads gzip compressed files as they are, decompressing them on a dedicated thread while parsing (see: CSVInflater)
+ * - can follow a file which is appended to, parsing only the appended records (see: CSVTail)
  */
 
 public abstract class CSVAccessor<T> {
 
     protected CSVAccessorConfig CSVAccessorConfig;
 
-    protected abstract Optional<T> parse(CSVRecord csvRecord);
+    protected abstract Optional<T> parse(CSVRow csvRow);
 
     protected List<T> read() {
+        return collect(this::parse, Collectors.toList());
+    }
+
+    protected <R> R collect(Function<CSVRow, Optional<T>> parser, Collector<T, ?, R> collector) {
+        List<Path> paths = paths();
+        if (paths.size() > 1 && CSVAccessorConfig.csvFormat == null)
+            return collectShards(paths, parser, collector);
+        if (paths.size() == 1 && CSVAccessorConfig.parallelism > 1 && CSVAccessorConfig.csvFormat == null && !isCompressed(paths.get(0)))
+            return collectParallel(paths.get(0), parser, collector);
+        try (Stream<T> records = stream(parser)) {
+            return records.collect(collector);
+        }
+    }
+
+    protected Stream<T> stream() {
+        return stream(this::parse);
+    }
+
+    protected Stream<T> stream(Function<CSVRow, Optional<T>> parser) {
+        List<Path> paths = paths();
+        if (paths.size() == 1)
+            return stream(paths.get(0), parser);
+        return paths.stream().flatMap(path -> stream(path, parser));
+    }
+
+    private Stream<T> stream(Path path, Function<CSVRow, Optional<T>> parser) {
+        CSVRowReader csvRows = null;
         try {
-            File file = new File(CSVAccessorConfig.csvFilePath);
-            CSVParser csvParser = CSVParser.parse(file, Charset.forName("UTF-8"), CSVFormat.DEFAULT.withHeader());
-            return csvParser.getRecords().stream()
-                    .map(this::parse)
-                    .flatMap(o -> o.map(Stream::of).orElseGet(Stream::empty))
-                    .collect(Collectors.toList());
+            Reader reader = new InputStreamReader(CSVInflater.open(path), Charset.forName("UTF-8"));
+            csvRows = CSVRowReader.of(reader, CSVAccessorConfig.csvFormat);
+            long start = PipelineMetrics.Read.start();
+            long bytes = Files.size(path);
+            CSVRow csvRow = new CSVRow(csvRows.readHeader());
+            CSVRowReader rows = csvRows;
+            long[] count = new long[1];
+            return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        while (rows.next(csvRow)) {
+                            count[0]++;
+                            Optional<T> t = parser.apply(csvRow);
+                            if (t.isPresent()) {
+                                action.accept(t.get());
+                                return true;
+                            }
+                        }
+                        return false;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, false).onClose(() -> {
+                close(rows);
+                PipelineMetrics.Read.end(start, count[0]);
+                PipelineMetrics.Read.addBytes(bytes);
+            });
+        } catch (IOException e) {
+            System.out.println("Can't read CSV file " + path);
+            e.printStackTrace();
+            if (csvRows != null)
+                close(csvRows);
+            return Stream.empty();
+        }
+    }
+
+    protected CSVTail<T> tail(Function<CSVRow, Optional<T>> parser) {
+        List<Path> paths = paths();
+        if (paths.size() != 1)
+            throw new IllegalStateException("Can't follow CSV files " + CSVAccessorConfig.csvFilePath + ", only a single file can be followed");
+        if (isCompressed(paths.get(0)))
+            throw new IllegalStateException("Can't follow compressed CSV file " + paths.get(0));
+        return new CSVTail<>(paths.get(0), Charset.forName("UTF-8"), CSVAccessorConfig.csvFormat, parser);
+    }
+
+    protected Optional<FileVersion> version() {
+        try {
+            return Optional.of(FileVersion.of(CSVShardReader.resolve(CSVAccessorConfig.csvFilePath)));
         } catch (IOException e) {
             System.out.println("Can't read CSV file " + CSVAccessorConfig.csvFilePath);
             e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    private List<Path> paths() {
+        try {
+            return CSVShardReader.resolve(CSVAccessorConfig.csvFilePath);
+        } catch (IOException e) {
+            System.out.println("Can't read CSV files " + CSVAccessorConfig.csvFilePath);
+            e.printStackTrace();
             return Collections.emptyList();
         }
     }
+
+    private boolean isCompressed(Path path) {
+        try {
+            return Files.exists(path) && CSVInflater.isCompressed(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private <R> R collectParallel(Path path, Function<CSVRow, Optional<T>> parser, Collector<T, ?, R> collector) {
+        try {
+            return new CSVChunkReader(path, Charset.forName("UTF-8"), CSVAccessorConfig.parallelism)
+                    .collect(parser, collector);
+        } catch (IOException e) {
+            System.out.println("Can't read CSV file " + path);
+            e.printStackTrace();
+            return Stream.<T>empty().collect(collector);
+        }
+    }
+
+    private <R> R collectShards(List<Path> paths, Function<CSVRow, Optional<T>> parser, Collector<T, ?, R> collector) {
+        try {
+            return new CSVShardReader(paths, Charset.forName("UTF-8"), CSVAccessorConfig.parallelism)
+                    .collect(parser, collector);
+        } catch (IOException e) {
+            System.out.println("Can't read CSV files " + CSVAccessorConfig.csvFilePath);
+            e.printStackTrace();
+            return Stream.<T>empty().collect(collector);
+        }
+    }
+
+    private void close(CSVRowReader csvRows) {
+        try {
+            csvRows.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,14 +1,33 @@
 package csv;
 
+import org.apache.commons.csv.CSVFormat;
+
 /**
- * CSVAccessorConfig - allows to configure data accessor (data source location ...)
+ * CSVAccessorConfig - allows to configure data accessor (data source location, number of threads used for parsing ...)
+ * - the data source location is a CSV file, a directory of CSV files or a glob of CSV files (f.e. "data/2016-10-*.csv"),
+ *   files of a directory or a glob are shards of one CSV file (each of them has its own header)
+ * - a CSV format can be set for files of other dialects than the default one (other delimiters, quotes, comments ...),
+ *   such files are read with the apache library on a single thread instead of the built-in tokenizer
+ *   (the first record is read as a header, the format doesn't have to define it)
  */
 
 final public class CSVAccessorConfig {
 
     String csvFilePath;
+    int parallelism;
+    CSVFormat csvFormat;
 
     public CSVAccessorConfig(String csvFilePath) {
+        this(csvFilePath, 1);
+    }
+
+    public CSVAccessorConfig(String csvFilePath, int parallelism) {
+        this(csvFilePath, parallelism, null);
+    }
+
+    public CSVAccessorConfig(String csvFilePath, int parallelism, CSVFormat csvFormat) {
         this.csvFilePath = csvFilePath;
+        this.parallelism = parallelism;
+        this.csvFormat = csvFormat;
     }
 }
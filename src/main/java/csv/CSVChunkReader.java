@@ -0,0 +1,224 @@
+package csv;
+
+import utils.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * CSVChunkReader reads a CSV file in parallel (is a part of CSVAccessor):
+ * - splits the file into byte ranges aligned to record boundaries
+ * - finds the boundaries by counting quotes of every range in parallel,
+ *   so a new line inside a quoted field is never taken for a record boundary
+ * - parses every range on a ForkJoinPool with its own tokenizer and row, and merges partial results in the file order
+ */
+
+class CSVChunkReader {
+
+    private static int MinChunkSize = 1 << 20;
+    private static int ChunksPerThread = 4;
+    private static int BlockSize = 1 << 16;
+
+    private static byte Quote = '"';
+    private static byte NewLine = '\n';
+
+    private Path path;
+    private Charset charset;
+    private int parallelism;
+    private long minChunkSize;
+
+    CSVChunkReader(Path path, Charset charset, int parallelism) {
+        this(path, charset, parallelism, MinChunkSize);
+    }
+
+    CSVChunkReader(Path path, Charset charset, int parallelism, long minChunkSize) {
+        this.path = path;
+        this.charset = charset;
+        this.parallelism = parallelism;
+        this.minChunkSize = minChunkSize;
+    }
+
+    <T, A, R> R collect(Function<CSVRow, Optional<T>> parser, Collector<T, A, R> collector) throws IOException {
+        long start = PipelineMetrics.Read.start();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long headerEnd = findHeaderEnd(channel);
+            CSVHeader header = parseHeader(channel, headerEnd, charset);
+
+            List<ForkJoinTask<A>> tasks = new ArrayList<>();
+            for (Range range : split(channel, headerEnd, pool))
+                tasks.add(pool.submit(() -> parse(channel, range, header, parser, collector)));
+
+            A result = collector.supplier().get();
+            for (ForkJoinTask<A> task : tasks)
+                result = collector.combiner().apply(result, task.join());
+            return collector.finisher().apply(result);
+        } finally {
+            pool.shutdown();
+            PipelineMetrics.Read.end(start);
+        }
+    }
+
+    static long findHeaderEnd(FileChannel channel) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BlockSize);
+        boolean quoted = false;
+        long position = 0;
+        int read;
+        while ((read = channel.read(block, position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == Quote)
+                    quoted = !quoted;
+                else if (b == NewLine && !quoted)
+                    return position + i + 1;
+            }
+            position += read;
+            block.clear();
+        }
+        return position;
+    }
+
+    static CSVHeader parseHeader(FileChannel channel, long headerEnd, Charset charset) throws IOException {
+        try (CSVRowReader csvRows = new CSVTokenizer(reader(channel, new Range(0, headerEnd), charset))) {
+            return csvRows.readHeader();
+        }
+    }
+
+    private List<Range> split(FileChannel channel, long headerEnd, ForkJoinPool pool) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(minChunkSize, (size - headerEnd) / ((long) parallelism * ChunksPerThread) + 1);
+
+        List<ForkJoinTask<Scan>> scans = new ArrayList<>();
+        for (long from = headerEnd; from < size; from += chunkSize) {
+            Range range = new Range(from, Math.min(size, from + chunkSize));
+            scans.add(pool.submit(() -> new Scan(channel, range)));
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        long from = headerEnd;
+        boolean quoted = false;
+        for (int i = 0; i < scans.size(); i++) {
+            Scan scan = scans.get(i).join();
+            long boundary = scan.firstNewLine(quoted);
+            if (i > 0 && boundary >= 0) {
+                ranges.add(new Range(from, boundary + 1));
+                from = boundary + 1;
+            }
+            quoted ^= scan.oddQuotes;
+        }
+        if (from < size)
+            ranges.add(new Range(from, size));
+        return ranges;
+    }
+
+    private <T, A> A parse(FileChannel channel, Range range, CSVHeader header,
+                           Function<CSVRow, Optional<T>> parser, Collector<T, A, ?> collector) throws IOException {
+        A result = collector.supplier().get();
+        CSVRow csvRow = new CSVRow(header);
+        long rows = 0;
+        try (CSVRowReader csvRows = new CSVTokenizer(reader(channel, range, charset))) {
+            while (csvRows.next(csvRow)) {
+                rows++;
+                parser.apply(csvRow).ifPresent(t -> collector.accumulator().accept(result, t));
+            }
+        }
+        PipelineMetrics.Read.addRows(rows);
+        PipelineMetrics.Read.addBytes(range.to - range.from);
+        return result;
+    }
+
+    static Reader reader(FileChannel channel, Range range, Charset charset) {
+        return new InputStreamReader(new RangeInputStream(channel, range), charset);
+    }
+
+
+    static class Range {
+        private long from;
+        private long to;
+
+        Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+
+    /**
+     * Scan finds the first new line of a range for both cases: the range starts outside or inside of a quoted field
+     */
+
+    private static class Scan {
+        private boolean oddQuotes;
+        private long[] firstNewLines = {-1, -1};
+
+        Scan(FileChannel channel, Range range) throws IOException {
+            ByteBuffer block = ByteBuffer.allocate(BlockSize);
+            long position = range.from;
+            while (position < range.to) {
+                block.clear().limit((int) Math.min(BlockSize, range.to - position));
+                int read = channel.read(block, position);
+                if (read < 0)
+                    break;
+                for (int i = 0; i < read; i++) {
+                    byte b = block.get(i);
+                    if (b == Quote)
+                        oddQuotes = !oddQuotes;
+                    else if (b == NewLine && firstNewLines[oddQuotes ? 1 : 0] < 0)
+                        firstNewLines[oddQuotes ? 1 : 0] = position + i;
+                }
+                position += read;
+            }
+        }
+
+        long firstNewLine(boolean quoted) {
+            return firstNewLines[quoted ? 1 : 0];
+        }
+    }
+
+
+    /**
+     * RangeInputStream reads a range of a file through positional reads, so ranges can be read concurrently
+     */
+
+    static class RangeInputStream extends InputStream {
+        private FileChannel channel;
+        private long position;
+        private long to;
+
+        RangeInputStream(FileChannel channel, Range range) {
+            this.channel = channel;
+            this.position = range.from;
+            this.to = range.to;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= to)
+                return -1;
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, to - position)), position);
+            if (read > 0)
+                position += read;
+            return read;
+        }
+    }
+}
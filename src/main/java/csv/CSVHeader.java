@@ -0,0 +1,43 @@
+package csv;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CSVHeader describes columns of a CSV file:
+ * - is read once per file (or per a followed file), all rows of the file refer to the same header
+ * - resolves a column's name to its index, so a parser can bind its fields to indexes once
+ *   and read every row by the indexes (f.e. see: InstructionCSVDAO)
+ */
+
+public final class CSVHeader {
+
+    public static int NoColumn = -1;
+
+    private String[] names;
+    private Map<String, Integer> columns = new HashMap<>();
+
+    CSVHeader(String[] names) {
+        this.names = names;
+        for (int column = 0; column < names.length; column++)
+            columns.putIfAbsent(names[column], column);
+    }
+
+    public int getColumn(String name) {
+        return columns.getOrDefault(name, NoColumn);
+    }
+
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
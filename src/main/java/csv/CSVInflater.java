@@ -0,0 +1,147 @@
+package csv;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CSVInflater reads a gzip compressed CSV file (is a part of CSVAccessor):
+ * - a file is taken for compressed by its content (the gzip magic number), not by its name
+ * - decompresses the file on a dedicated thread into blocks passed to the reader through a bounded queue,
+ *   so decompression and parsing overlap and no more than a few blocks of decompressed data are kept in memory
+ * - an error of decompression is thrown by the reader after the blocks decompressed before the error
+ * - closing the reader stops the decompressing thread
+ * - a compressed file can't be split into chunks, so it's always parsed on a single thread
+ */
+
+class CSVInflater extends InputStream {
+
+    private static int BlockSize = 1 << 16;
+    private static int QueueSize = 16;
+    private static long PutTimeout = 100;
+    private static byte[] End = new byte[0];
+
+    private Path path;
+    private BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(QueueSize);
+    private Thread thread;
+    private volatile boolean closed;
+    private volatile IOException error;
+
+    private byte[] block = new byte[0];
+    private int position;
+
+    CSVInflater(Path path) throws IOException {
+        this.path = path;
+        FileInputStream file = new FileInputStream(path.toFile());
+        InputStream input;
+        try {
+            input = new GZIPInputStream(file, BlockSize);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        this.thread = new Thread(() -> inflate(input), "CSVInflater " + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static InputStream open(Path path) throws IOException {
+        if (isCompressed(path))
+            return new CSVInflater(path);
+        else
+            return new FileInputStream(path.toFile());
+    }
+
+    static boolean isCompressed(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining())
+                if (channel.read(magic) < 0)
+                    return false;
+            return (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B;
+        }
+    }
+
+    private void inflate(InputStream input) {
+        try (InputStream in = input) {
+            int length;
+            do {
+                byte[] block = new byte[BlockSize];
+                length = 0;
+                int read;
+                while (length < BlockSize && (read = in.read(block, length, BlockSize - length)) >= 0)
+                    length += read;
+                if (length > 0 && !put(length == BlockSize ? block : Arrays.copyOf(block, length)))
+                    return;
+            } while (length == BlockSize);
+        } catch (IOException e) {
+            error = e;
+        }
+        put(End);
+    }
+
+    private boolean put(byte[] block) {
+        try {
+            while (!closed)
+                if (blocks.offer(block, PutTimeout, TimeUnit.MILLISECONDS))
+                    return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("CSV file " + path + " is closed");
+        if (len == 0)
+            return 0;
+        if (position == block.length) {
+            if (block == End)
+                return end();
+            try {
+                block = blocks.take();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading CSV file " + path);
+            }
+            if (block == End)
+                return end();
+        }
+        int length = Math.min(len, block.length - position);
+        System.arraycopy(block, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    private int end() throws IOException {
+        if (error != null)
+            throw new IOException("Can't decompress CSV file " + path, error);
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        blocks.clear();
+    }
+}
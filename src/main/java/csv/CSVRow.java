@@ -0,0 +1,154 @@
+package csv;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.Arrays;
+
+/**
+ * CSVRow is a reusable holder of a row of a CSV file:
+ * - keeps values of all fields in a single char buffer, which grows to the longest row and is reused by the next rows
+ *   (a row is valid only until the next row is read into it, a parser must not keep it)
+ * - exposes a field as a CharSequence view of the buffer, so a field can be parsed without creating a string
+ * - a row object is created per reading thread, so its buffer is never shared
+ */
+
+public final class CSVRow {
+
+    private static int InitialBufferSize = 256;
+    private static int InitialColumns = 16;
+
+    private CSVHeader header;
+    private long number;
+
+    private char[] buffer = new char[InitialBufferSize];
+    private int length;
+    private int fieldStart;
+
+    private int[] starts = new int[InitialColumns];
+    private int[] ends = new int[InitialColumns];
+    private Field[] fields = new Field[0];
+    private int size;
+
+    CSVRow(CSVHeader header) {
+        this.header = header;
+    }
+
+    public CSVHeader getHeader() {
+        return header;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getChars(int column) {
+        if (column < 0 || column >= size)
+            return null;
+        if (column >= fields.length) {
+            int length = fields.length;
+            fields = Arrays.copyOf(fields, Math.max(size, starts.length));
+            for (int i = length; i < fields.length; i++)
+                fields[i] = new Field(i);
+        }
+        return fields[column];
+    }
+
+    public String get(int column) {
+        if (column < 0 || column >= size)
+            return null;
+        return new String(buffer, starts[column], ends[column] - starts[column]);
+    }
+
+    public String get(String name) {
+        return get(header.getColumn(name));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder values = new StringBuilder();
+        for (int column = 0; column < size; column++)
+            values.append(column == 0 ? "" : ", ").append(buffer, starts[column], ends[column] - starts[column]);
+        return "CSVRow [recordNumber=" + number + ", values=[" + values + "]]";
+    }
+
+    void clear() {
+        length = 0;
+        fieldStart = 0;
+        size = 0;
+    }
+
+    void append(char c) {
+        if (length == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        buffer[length++] = c;
+    }
+
+    void endField() {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = fieldStart;
+        ends[size] = length;
+        size++;
+        fieldStart = length;
+    }
+
+    void endRow(long number) {
+        this.number = number;
+    }
+
+    void set(CSVRecord csvRecord, long number) {
+        clear();
+        for (String value : csvRecord) {
+            for (int i = 0; i < value.length(); i++)
+                append(value.charAt(i));
+            endField();
+        }
+        endRow(number);
+    }
+
+    String[] toArray() {
+        String[] values = new String[size];
+        for (int column = 0; column < size; column++)
+            values[column] = get(column);
+        return values;
+    }
+
+
+    /**
+     * Field is a view of a field's value in the buffer of a row (a new string is created only by toString)
+     */
+
+    private class Field implements CharSequence {
+        private int column;
+
+        Field(int column) {
+            this.column = column;
+        }
+
+        @Override
+        public int length() {
+            return ends[column] - starts[column];
+        }
+
+        @Override
+        public char charAt(int index) {
+            return buffer[starts[column] + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, starts[column] + start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return get(column);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * CSVRowReader reads rows of a CSV text into a reusable CSVRow (is a part of CSVAccessor):
+ * - uses the built-in tokenizer for the default dialect (see: CSVTokenizer)
+ * - falls back to the apache library for other dialects (a CSVFormat set by CSVAccessorConfig)
+ * - reads the first row of a text as its header, rows after the header are numbered from 1
+ *   (the same as record numbers of the apache library when a format skips its header)
+ */
+
+abstract class CSVRowReader implements Closeable {
+
+    static CSVRowReader of(Reader reader, CSVFormat csvFormat) throws IOException {
+        return csvFormat == null ? new CSVTokenizer(reader) : new FormatReader(reader, csvFormat);
+    }
+
+    long headerRecords;
+
+    abstract boolean next(CSVRow row) throws IOException;
+
+    CSVHeader readHeader() throws IOException {
+        CSVRow row = new CSVRow(null);
+        if (!next(row))
+            return new CSVHeader(new String[0]);
+        headerRecords += row.getNumber();
+        return new CSVHeader(row.toArray());
+    }
+
+
+    /**
+     * FormatReader reads rows with the apache library (the header is read as the first row, not by the format)
+     */
+
+    private static class FormatReader extends CSVRowReader {
+        private CSVParser csvParser;
+        private Iterator<CSVRecord> csvRecords;
+
+        FormatReader(Reader reader, CSVFormat csvFormat) throws IOException {
+            this.csvParser = new CSVParser(reader, csvFormat.withHeader((String[]) null).withSkipHeaderRecord(false));
+            this.csvRecords = csvParser.iterator();
+        }
+
+        @Override
+        boolean next(CSVRow row) {
+            if (!csvRecords.hasNext())
+                return false;
+            CSVRecord csvRecord = csvRecords.next();
+            row.set(csvRecord, csvRecord.getRecordNumber() - headerRecords);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            csvParser.close();
+        }
+    }
+}
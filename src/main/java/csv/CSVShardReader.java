@@ -0,0 +1,130 @@
+package csv;
+
+import utils.metrics.PipelineMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * CSVShardReader reads a CSV file split into several files (shards) in parallel (is a part of CSVAccessor):
+ * - resolves a location to its shards: all ".csv" (and compressed ".csv.gz", see: CSVInflater) files of a directory, files matching a glob in the last part of a path
+ *   (f.e. "data/2016-10-*.csv"), or the file itself
+ * - parses every shard on a ForkJoinPool with its own tokenizer and row into a partial result of a collector
+ * - starts the largest shards first, so reading all shards takes about as long as reading the largest one
+ *   (given enough threads)
+ * - merges partial results in the order of shards' names, so results don't depend on the order of reading
+ */
+
+class CSVShardReader {
+
+    private static String Extensions = "{csv,csv.gz}";
+    private static String GlobCharacters = "*?[{";
+
+    private List<Path> paths;
+    private Charset charset;
+    private int parallelism;
+
+    CSVShardReader(List<Path> paths, Charset charset, int parallelism) {
+        this.paths = paths;
+        this.charset = charset;
+        this.parallelism = parallelism;
+    }
+
+    static List<Path> resolve(String location) throws IOException {
+        if (isGlob(location)) {
+            int separator = Math.max(location.lastIndexOf('/'), location.lastIndexOf(File.separatorChar));
+            String directory = separator < 0 ? "." : location.substring(0, separator + 1);
+            if (isGlob(directory))
+                throw new IOException("Only the last part of a path can be a glob: " + location);
+            return list(Paths.get(directory), location.substring(separator + 1));
+        }
+        Path path = Paths.get(location);
+        if (Files.isDirectory(path))
+            return list(path, "*." + Extensions);
+        else
+            return Collections.singletonList(path);
+    }
+
+    private static boolean isGlob(String location) {
+        return location.chars().anyMatch(c -> GlobCharacters.indexOf(c) >= 0);
+    }
+
+    private static List<Path> list(Path directory, String glob) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : files)
+                if (Files.isRegularFile(file))
+                    paths.add(file);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    <T, A, R> R collect(Function<CSVRow, Optional<T>> parser, Collector<T, A, R> collector) throws IOException {
+        long start = PipelineMetrics.Read.start();
+        List<Integer> bySize = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++)
+            bySize.add(i);
+        bySize.sort(Comparator.comparingLong((Integer i) -> size(paths.get(i))).reversed());
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(parallelism, paths.size())));
+        try {
+            List<ForkJoinTask<A>> tasks = new ArrayList<>(Collections.nCopies(paths.size(), null));
+            for (int i : bySize) {
+                Path path = paths.get(i);
+                tasks.set(i, pool.submit(() -> parse(path, parser, collector)));
+            }
+
+            A result = collector.supplier().get();
+            for (ForkJoinTask<A> task : tasks)
+                result = collector.combiner().apply(result, task.join());
+            return collector.finisher().apply(result);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+            PipelineMetrics.Read.end(start);
+        }
+    }
+
+    private <T, A> A parse(Path path, Function<CSVRow, Optional<T>> parser, Collector<T, A, ?> collector) {
+        A result = collector.supplier().get();
+        try (CSVRowReader csvRows = new CSVTokenizer(new InputStreamReader(CSVInflater.open(path), charset))) {
+            CSVRow csvRow = new CSVRow(csvRows.readHeader());
+            long rows = 0;
+            while (csvRows.next(csvRow)) {
+                rows++;
+                parser.apply(csvRow).ifPresent(t -> collector.accumulator().accept(result, t));
+            }
+            PipelineMetrics.Read.addRows(rows);
+            PipelineMetrics.Read.addBytes(size(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
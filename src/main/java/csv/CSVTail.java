@@ -0,0 +1,167 @@
+package csv;
+
+import org.apache.commons.csv.CSVFormat;
+import utils.metrics.PipelineMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * CSVTail follows a CSV file which is appended to (is a part of CSVAccessor):
+ * - remembers the header and the byte offset of the end of the last consumed record,
+ *   so every read parses only records appended since the previous one
+ * - consumes a record only when its line is terminated, a partially written record is read once it's completed
+ *   (a new line inside a quoted field is not taken for the end of a record)
+ * - starts over from the beginning of the file if the file was truncated or replaced
+ * - waits for changes of the file with a WatchService (or just sleeps if the file system can't be watched)
+ */
+
+public class CSVTail<T> implements Closeable {
+
+    private static int BlockSize = 1 << 16;
+
+    private static byte Quote = '"';
+    private static byte NewLine = '\n';
+
+    private Path path;
+    private Charset charset;
+    private CSVFormat csvFormat;
+    private Function<CSVRow, Optional<T>> parser;
+
+    private CSVHeader header;
+    private long offset;
+    private Object fileKey;
+
+    private WatchService watchService;
+
+    CSVTail(Path path, Charset charset, CSVFormat csvFormat, Function<CSVRow, Optional<T>> parser) {
+        this.path = path;
+        this.charset = charset;
+        this.csvFormat = csvFormat;
+        this.parser = parser;
+        try {
+            this.watchService = path.toAbsolutePath().getParent().getFileSystem().newWatchService();
+            path.toAbsolutePath().getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.out.println("Can't watch CSV file " + path + ", falling back to polling");
+            this.watchService = null;
+        }
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long read(Consumer<T> consumer, Runnable onRestart) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            if (channel.size() < offset || (fileKey != null && key != null && !Objects.equals(fileKey, key))) {
+                header = null;
+                offset = 0;
+                onRestart.run();
+            }
+            fileKey = key;
+
+            if (header == null) {
+                long headerEnd = CSVChunkReader.findHeaderEnd(channel);
+                if (headerEnd == 0 || !isTerminated(channel, headerEnd))
+                    return 0;
+                try (CSVRowReader csvRows = CSVRowReader.of(CSVChunkReader.reader(channel, new CSVChunkReader.Range(0, headerEnd), charset), csvFormat)) {
+                    header = csvRows.readHeader();
+                }
+                offset = headerEnd;
+            }
+
+            long end = findLastRecordEnd(channel, offset, channel.size());
+            if (end <= offset)
+                return 0;
+            long start = PipelineMetrics.Read.start();
+            long records = parse(channel, new CSVChunkReader.Range(offset, end), consumer);
+            PipelineMetrics.Read.end(start);
+            PipelineMetrics.Read.addBytes(end - offset);
+            offset = end;
+            return records;
+        } catch (IOException e) {
+            System.out.println("Can't read CSV file " + path);
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (watchService == null) {
+            unit.sleep(timeout);
+            return true;
+        }
+        WatchKey watchKey = watchService.poll(timeout, unit);
+        boolean changed = false;
+        while (watchKey != null) {
+            for (WatchEvent<?> event : watchKey.pollEvents())
+                changed |= event.kind() == OVERFLOW || path.getFileName().equals(event.context());
+            watchKey.reset();
+            watchKey = watchService.poll();
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null)
+            watchService.close();
+    }
+
+    private long parse(FileChannel channel, CSVChunkReader.Range range, Consumer<T> consumer) throws IOException {
+        long records = 0;
+        CSVRow csvRow = new CSVRow(header);
+        try (CSVRowReader csvRows = CSVRowReader.of(CSVChunkReader.reader(channel, range, charset), csvFormat)) {
+            while (csvRows.next(csvRow)) {
+                PipelineMetrics.Read.addRows(1);
+                Optional<T> t = parser.apply(csvRow);
+                if (t.isPresent()) {
+                    consumer.accept(t.get());
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private boolean isTerminated(FileChannel channel, long end) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        return channel.read(last, end - 1) == 1 && last.get(0) == NewLine;
+    }
+
+    private long findLastRecordEnd(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BlockSize);
+        boolean quoted = false;
+        long end = from;
+        long position = from;
+        while (position < to) {
+            block.clear().limit((int) Math.min(BlockSize, to - position));
+            int read = channel.read(block, position);
+            if (read < 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == Quote)
+                    quoted = !quoted;
+                else if (b == NewLine && !quoted)
+                    end = position + i + 1;
+            }
+            position += read;
+        }
+        return end;
+    }
+}
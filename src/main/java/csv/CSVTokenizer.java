@@ -0,0 +1,105 @@
+package csv;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * CSVTokenizer splits a CSV text of the default dialect into rows (is a part of CSVRowReader):
+ * - comma separated fields, optionally enclosed in double quotes ("" stands for a quote inside a quoted field),
+ *   records separated by LF, CRLF or CR, empty lines are skipped (the same rules as CSVFormat.DEFAULT of the apache library)
+ * - reads the text through its own char buffer and copies fields straight into a reusable row,
+ *   so reading a row doesn't create any objects
+ */
+
+class CSVTokenizer extends CSVRowReader {
+
+    private static int BufferSize = 1 << 16;
+    private static int EndOfText = -1;
+
+    private static char Delimiter = ',';
+    private static char Quote = '"';
+    private static char LineFeed = '\n';
+    private static char CarriageReturn = '\r';
+
+    private Reader reader;
+    private char[] buffer = new char[BufferSize];
+    private int position;
+    private int limit;
+    private long records;
+
+    CSVTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    boolean next(CSVRow row) throws IOException {
+        row.clear();
+        int c = read();
+        while (c == LineFeed || c == CarriageReturn)
+            c = read();
+        if (c == EndOfText)
+            return false;
+
+        while (true) {
+            c = c == Quote ? readQuoted(row) : readUnquoted(row, c);
+            row.endField();
+            if (c == Delimiter)
+                c = read();
+            else
+                break;
+        }
+        if (c == CarriageReturn && (c = read()) != LineFeed && c != EndOfText)
+            position--;
+
+        row.endRow(++records - headerRecords);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int readUnquoted(CSVRow row, int c) throws IOException {
+        while (c != Delimiter && c != LineFeed && c != CarriageReturn && c != EndOfText) {
+            row.append((char) c);
+            c = read();
+        }
+        return c;
+    }
+
+    private int readQuoted(CSVRow row) throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EndOfText)
+                throw new IOException("EOF reached before encapsulated token finished (record " + (records + 1 - headerRecords) + ")");
+            if (c != Quote) {
+                row.append((char) c);
+                continue;
+            }
+            c = read();
+            if (c == Quote) {
+                row.append(Quote);
+                continue;
+            }
+            while (c != Delimiter && c != LineFeed && c != CarriageReturn && c != EndOfText) {
+                if (!Character.isWhitespace(c))
+                    throw new IOException("Invalid char between encapsulated token and delimiter (record " + (records + 1 - headerRecords) + ")");
+                c = read();
+            }
+            return c;
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EndOfText;
+            }
+        }
+        return buffer[position++];
+    }
+}
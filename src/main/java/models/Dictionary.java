@@ -0,0 +1,51 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encodes values with dense int ids (starting from 0):
+ * - the same value always gets the same id
+ * - allows to get a value back by its id
+ * - can be shared between threads: encoding a known value and decoding don't lock
+ */
+
+public class Dictionary<T> {
+
+    private static int InitialCapacity = 256;
+
+    private Map<T, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Object[] values = new Object[InitialCapacity];
+    private volatile int size;
+
+    public int encode(T value) {
+        Integer id = ids.get(value);
+        return id != null ? id : add(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public T decode(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("Unknown id " + id);
+        return (T) values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized int add(T value) {
+        Integer id = ids.get(value);
+        if (id != null)
+            return id;
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+        // a value and the size are published before the id, so an id got by encode can always be decoded
+        id = size;
+        values[id] = value;
+        size = id + 1;
+        ids.put(value, id);
+        return id;
+    }
+}
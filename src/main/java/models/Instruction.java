@@ -8,10 +8,15 @@ import java.util.Currency;
  * Instruction represents an instruction in the project:
  * - doesn't carry any logic
  * - is immutable in our case (can be changed if required)
+ * - refers to its entity by a name and an id of an entities dictionary
+ *   (NoEntityId if the instruction wasn't created by a data access object)
  */
 
 public class Instruction {
+    public static int NoEntityId = -1;
+
     private String entity;
+    private int entityId;
     private InstructionType instructionType;
     private BigDecimal exchangeRate;
     private Currency currency;
@@ -28,7 +33,20 @@ public class Instruction {
                        LocalDate settlementDate,
                        int unitQuantity,
                        BigDecimal unitPrice) {
+        this(entity, NoEntityId, instructionType, exchangeRate, currency, receivedDate, settlementDate, unitQuantity, unitPrice);
+    }
+
+    public Instruction(String entity,
+                       int entityId,
+                       InstructionType instructionType,
+                       BigDecimal exchangeRate,
+                       Currency currency,
+                       LocalDate receivedDate,
+                       LocalDate settlementDate,
+                       int unitQuantity,
+                       BigDecimal unitPrice) {
         this.entity = entity;
+        this.entityId = entityId;
         this.instructionType = instructionType;
         this.exchangeRate = exchangeRate;
         this.currency = currency;
@@ -42,6 +60,10 @@ public class Instruction {
         return entity;
     }
 
+    public int getEntityId() {
+        return entityId;
+    }
+
     public InstructionType getInstructionType() {
         return instructionType;
     }
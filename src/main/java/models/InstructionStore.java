@@ -0,0 +1,297 @@
+package models;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.stream.Collector;
+
+/**
+ * InstructionStore keeps instructions in columns of primitive arrays instead of objects:
+ * - dates are kept as epoch days and an instruction type as its ordinal
+ * - entities and currencies are encoded with dictionaries
+ *   (the entities dictionary is shared with data access objects which create instructions)
+ * - unit prices and exchange rates are kept as unscaled longs with their scales, a value which doesn't fit
+ *   (more than 18 digits or a scale out of a byte) is kept as a BigDecimal in a side column by its row
+ *   and its scale is marked with DecimalScale (see: isFixedPoint)
+ * - allows to scan instructions by their received dates without creating any objects
+ * - rows are only appended, never changed, so a snapshot of a store shares its columns with the store
+ *   and sees only the rows added before it was taken (see: VersionedInstructionStore)
+ */
+
+public class InstructionStore {
+
+    private static int InitialCapacity = 1024;
+    private static int MaxLongPrecision = 18;
+    private static int DecimalScale = Byte.MIN_VALUE;
+    private static InstructionType[] InstructionTypes = InstructionType.values();
+
+    private Dictionary<String> entities;
+    private Dictionary<Currency> currencies = new Dictionary<>();
+
+    private int size;
+    private int[] receivedDates = new int[InitialCapacity];
+    private int[] settlementDates = new int[InitialCapacity];
+    private byte[] instructionTypes = new byte[InitialCapacity];
+    private int[] entityIds = new int[InitialCapacity];
+    private short[] currencyIds = new short[InitialCapacity];
+    private int[] unitQuantities = new int[InitialCapacity];
+    private long[] unitPrices = new long[InitialCapacity];
+    private byte[] unitPriceScales = new byte[InitialCapacity];
+    private long[] exchangeRates = new long[InitialCapacity];
+    private byte[] exchangeRateScales = new byte[InitialCapacity];
+    private Map<Integer, BigDecimal> unitPriceDecimals = new ConcurrentHashMap<>();
+    private Map<Integer, BigDecimal> exchangeRateDecimals = new ConcurrentHashMap<>();
+    private boolean readOnly;
+
+    public InstructionStore(Dictionary<String> entities) {
+        this.entities = entities;
+    }
+
+    private InstructionStore(InstructionStore store) {
+        this.entities = store.entities;
+        this.currencies = store.currencies;
+        this.size = store.size;
+        this.receivedDates = store.receivedDates;
+        this.settlementDates = store.settlementDates;
+        this.instructionTypes = store.instructionTypes;
+        this.entityIds = store.entityIds;
+        this.currencyIds = store.currencyIds;
+        this.unitQuantities = store.unitQuantities;
+        this.unitPrices = store.unitPrices;
+        this.unitPriceScales = store.unitPriceScales;
+        this.exchangeRates = store.exchangeRates;
+        this.exchangeRateScales = store.exchangeRateScales;
+        this.unitPriceDecimals = store.unitPriceDecimals;
+        this.exchangeRateDecimals = store.exchangeRateDecimals;
+        this.readOnly = true;
+    }
+
+    public static Collector<Instruction, ?, InstructionStore> collector(Dictionary<String> entities) {
+        return Collector.of(() -> new InstructionStore(entities), InstructionStore::add, InstructionStore::addAll);
+    }
+
+    public void add(Instruction instruction) {
+        checkWritable();
+        BigDecimal unitPrice = instruction.getUnitPrice();
+        BigDecimal exchangeRate = instruction.getExchangeRate();
+        // side values are put before the row is added, so snapshots never see a row without them
+        if (!isFixedPoint(unitPrice))
+            unitPriceDecimals.put(size, unitPrice);
+        if (!isFixedPoint(exchangeRate))
+            exchangeRateDecimals.put(size, exchangeRate);
+        add(
+                Math.toIntExact(instruction.getReceivedDate().toEpochDay()),
+                Math.toIntExact(instruction.getSettlementDate().toEpochDay()),
+                instruction.getInstructionType(),
+                instruction.getEntityId() != Instruction.NoEntityId
+                        ? instruction.getEntityId()
+                        : entities.encode(instruction.getEntity()),
+                instruction.getCurrency(),
+                instruction.getUnitQuantity(),
+                unscaled(unitPrice),
+                scale(unitPrice),
+                unscaled(exchangeRate),
+                scale(exchangeRate)
+        );
+    }
+
+    public void add(int receivedEpochDay,
+                    int settlementEpochDay,
+                    InstructionType instructionType,
+                    int entityId,
+                    Currency currency,
+                    int unitQuantity,
+                    long unscaledUnitPrice,
+                    int unitPriceScale,
+                    long unscaledExchangeRate,
+                    int exchangeRateScale) {
+        checkWritable();
+        ensureCapacity(size + 1);
+        receivedDates[size] = receivedEpochDay;
+        settlementDates[size] = settlementEpochDay;
+        instructionTypes[size] = (byte) instructionType.ordinal();
+        entityIds[size] = entityId;
+        currencyIds[size] = (short) currencies.encode(currency);
+        unitQuantities[size] = unitQuantity;
+        unitPrices[size] = unscaledUnitPrice;
+        unitPriceScales[size] = (byte) unitPriceScale;
+        exchangeRates[size] = unscaledExchangeRate;
+        exchangeRateScales[size] = (byte) exchangeRateScale;
+        size++;
+    }
+
+    public InstructionStore addAll(InstructionStore other) {
+        checkWritable();
+        int offset = size;
+        int count = other.size;
+        ensureCapacity(offset + count);
+        System.arraycopy(other.receivedDates, 0, receivedDates, offset, count);
+        System.arraycopy(other.settlementDates, 0, settlementDates, offset, count);
+        System.arraycopy(other.instructionTypes, 0, instructionTypes, offset, count);
+        System.arraycopy(other.unitQuantities, 0, unitQuantities, offset, count);
+        System.arraycopy(other.unitPrices, 0, unitPrices, offset, count);
+        System.arraycopy(other.unitPriceScales, 0, unitPriceScales, offset, count);
+        System.arraycopy(other.exchangeRates, 0, exchangeRates, offset, count);
+        System.arraycopy(other.exchangeRateScales, 0, exchangeRateScales, offset, count);
+
+        // currencies are encoded by every store, so only their ids are remapped (entities are usually shared)
+        short[] currencyMapping = new short[other.currencies.size()];
+        for (int id = 0; id < currencyMapping.length; id++)
+            currencyMapping[id] = (short) currencies.encode(other.currencies.decode(id));
+        for (int row = 0; row < count; row++)
+            currencyIds[offset + row] = currencyMapping[other.currencyIds[row]];
+        if (other.entities == entities)
+            System.arraycopy(other.entityIds, 0, entityIds, offset, count);
+        else
+            for (int row = 0; row < count; row++)
+                entityIds[offset + row] = entities.encode(other.getEntity(row));
+
+        other.unitPriceDecimals.forEach((row, value) -> unitPriceDecimals.put(offset + row, value));
+        other.exchangeRateDecimals.forEach((row, value) -> exchangeRateDecimals.put(offset + row, value));
+        size += count;
+        return this;
+    }
+
+    public InstructionStore snapshot() {
+        return readOnly ? this : new InstructionStore(this);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void forEachByReceivedDate(LocalDate start, LocalDate end, IntConsumer action) {
+        long from = start.toEpochDay();
+        long to = end.toEpochDay();
+        for (int row = 0; row < size; row++)
+            if (receivedDates[row] >= from && receivedDates[row] <= to)
+                action.accept(row);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Instruction get(int row) {
+        return new Instruction(
+                getEntity(row),
+                getEntityId(row),
+                getInstructionType(row),
+                getExchangeRate(row),
+                getCurrency(row),
+                getReceivedDate(row),
+                getSettlementDate(row),
+                getUnitQuantity(row),
+                getUnitPrice(row)
+        );
+    }
+
+    public int getReceivedEpochDay(int row) {
+        return receivedDates[row];
+    }
+
+    public LocalDate getReceivedDate(int row) {
+        return LocalDate.ofEpochDay(receivedDates[row]);
+    }
+
+    public int getSettlementEpochDay(int row) {
+        return settlementDates[row];
+    }
+
+    public LocalDate getSettlementDate(int row) {
+        return LocalDate.ofEpochDay(settlementDates[row]);
+    }
+
+    public InstructionType getInstructionType(int row) {
+        return InstructionTypes[instructionTypes[row]];
+    }
+
+    public int getEntityId(int row) {
+        return entityIds[row];
+    }
+
+    public String getEntity(int row) {
+        return entities.decode(entityIds[row]);
+    }
+
+    public Dictionary<String> getEntities() {
+        return entities;
+    }
+
+    public Currency getCurrency(int row) {
+        return currencies.decode(currencyIds[row]);
+    }
+
+    public int getUnitQuantity(int row) {
+        return unitQuantities[row];
+    }
+
+    public boolean isFixedPoint(int row) {
+        return unitPriceScales[row] != DecimalScale && exchangeRateScales[row] != DecimalScale;
+    }
+
+    public long getUnscaledUnitPrice(int row) {
+        return unitPrices[row];
+    }
+
+    public int getUnitPriceScale(int row) {
+        return unitPriceScales[row];
+    }
+
+    public BigDecimal getUnitPrice(int row) {
+        if (unitPriceScales[row] == DecimalScale)
+            return unitPriceDecimals.get(row);
+        return BigDecimal.valueOf(unitPrices[row], unitPriceScales[row]);
+    }
+
+    public long getUnscaledExchangeRate(int row) {
+        return exchangeRates[row];
+    }
+
+    public int getExchangeRateScale(int row) {
+        return exchangeRateScales[row];
+    }
+
+    public BigDecimal getExchangeRate(int row) {
+        if (exchangeRateScales[row] == DecimalScale)
+            return exchangeRateDecimals.get(row);
+        return BigDecimal.valueOf(exchangeRates[row], exchangeRateScales[row]);
+    }
+
+    private static boolean isFixedPoint(BigDecimal value) {
+        return value.precision() <= MaxLongPrecision && value.scale() == (byte) value.scale() && value.scale() != DecimalScale;
+    }
+
+    private static long unscaled(BigDecimal value) {
+        return isFixedPoint(value) ? value.unscaledValue().longValue() : 0;
+    }
+
+    private static int scale(BigDecimal value) {
+        return isFixedPoint(value) ? value.scale() : DecimalScale;
+    }
+
+    private void checkWritable() {
+        if (readOnly)
+            throw new IllegalStateException("Snapshot of instruction store can't be changed");
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= receivedDates.length)
+            return;
+        int length = Math.max(capacity, receivedDates.length * 2);
+        receivedDates = Arrays.copyOf(receivedDates, length);
+        settlementDates = Arrays.copyOf(settlementDates, length);
+        instructionTypes = Arrays.copyOf(instructionTypes, length);
+        entityIds = Arrays.copyOf(entityIds, length);
+        currencyIds = Arrays.copyOf(currencyIds, length);
+        unitQuantities = Arrays.copyOf(unitQuantities, length);
+        unitPrices = Arrays.copyOf(unitPrices, length);
+        unitPriceScales = Arrays.copyOf(unitPriceScales, length);
+        exchangeRates = Arrays.copyOf(exchangeRates, length);
+        exchangeRateScales = Arrays.copyOf(exchangeRateScales, length);
+    }
+}
@@ -0,0 +1,69 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * VersionedInstructionStore publishes snapshots of instructions ingested by a single writer to many readers:
+ * - the writer appends instructions to its own store and publishes a snapshot of it with the next version number
+ *   (the writer's methods are called from one thread at a time)
+ * - a snapshot is read-only and shares columns with the writer's store (copy-on-write: the store copies its columns
+ *   when it grows and never changes rows of a published snapshot), so publishing doesn't copy instructions
+ * - the current snapshot is swapped through an atomic reference, so readers get a consistent snapshot without locking
+ *   and never wait for the writer, a reader keeps its snapshot for as long as it needs it
+ * - reset starts over with an empty store (f.e. if an ingested file was replaced), published snapshots stay unchanged
+ */
+
+public class VersionedInstructionStore {
+
+    private Dictionary<String> entities;
+    private InstructionStore store;
+    private long version;
+    private AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    public VersionedInstructionStore(Dictionary<String> entities) {
+        this.entities = entities;
+        this.store = new InstructionStore(entities);
+        snapshot.set(new Snapshot(version, store.snapshot()));
+    }
+
+    public void add(Instruction instruction) {
+        store.add(instruction);
+    }
+
+    public void reset() {
+        store = new InstructionStore(entities);
+    }
+
+    public Snapshot publish() {
+        Snapshot published = new Snapshot(++version, store.snapshot());
+        snapshot.set(published);
+        return published;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public Dictionary<String> getEntities() {
+        return entities;
+    }
+
+
+    public static final class Snapshot {
+        private final long version;
+        private final InstructionStore instructions;
+
+        Snapshot(long version, InstructionStore instructions) {
+            this.version = version;
+            this.instructions = instructions;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public InstructionStore getInstructions() {
+            return instructions;
+        }
+    }
+}
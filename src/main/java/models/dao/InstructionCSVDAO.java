@@ -2,10 +2,18 @@ package models.dao;
 
 import csv.CSVAccessor;
 import csv.CSVAccessorConfig;
+import csv.CSVHeader;
+import csv.CSVRow;
+import csv.CSVTail;
+import models.Dictionary;
 import models.Instruction;
+import models.InstructionStore;
 import models.InstructionType;
-import org.apache.commons.csv.CSVRecord;
+import models.VersionedInstructionStore;
+import utils.FileVersion;
+import utils.metrics.PipelineMetrics;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
@@ -13,6 +21,10 @@ import java.util.Currency;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 import static models.dao.InstructionCSVFields.*;
@@ -20,47 +32,189 @@ import static models.dao.InstructionCSVFields.*;
 /**
  * InstructionCSVDAO is a data access class for instructions:
  * - extends CSVAccessor and implements its interface for parsing instructions
+ * - implements InstructionDAO interface
  * - sets CSVAccessorConfig for CSVAccessor
+ * - encodes entity names with a dictionary shared with the report layer
+ *   (a copy of the DAO without entity ids keeps only names, f.e. for ranking entities by a sketch)
+ * - binds instruction fields to column indexes once per CSV header and parses rows by the indexes (see: InstructionCSVColumns)
+ *   (the binding is kept per thread, so shards of a CSV file read in parallel don't rebind each other's rows)
+ * - can follow a CSV file which is appended to (see: CSVTail)
+ * - records metrics of parsing and filtering rows (see: PipelineMetrics)
+ * - passes rows which can't be parsed to InstructionRejects, which counts, logs and writes them to a reject file
+ *   (a copy of the DAO without rejects reads the same rows again without reporting them twice)
+ * - can ingest a followed CSV file into a versioned store, publishing a snapshot whenever rows are appended
+ *   (see: VersionedInstructionStore), so reports can be calculated on other threads while the file is ingested
  */
 
-public class InstructionCSVDAO extends CSVAccessor<Instruction> {
+public class InstructionCSVDAO extends CSVAccessor<Instruction> implements InstructionDAO {
 
-    public InstructionCSVDAO(CSVAccessorConfig CSVAccessorConfig) {
+    private Dictionary<String> entities;
+    private InstructionRejects rejects;
+    private boolean encoded = true;
+    private ThreadLocal<InstructionCSVColumns> columns = new ThreadLocal<>();
+
+    public InstructionCSVDAO(CSVAccessorConfig CSVAccessorConfig, Dictionary<String> entities) {
+        this(CSVAccessorConfig, entities, new InstructionRejects());
+    }
+
+    public InstructionCSVDAO(CSVAccessorConfig CSVAccessorConfig, Dictionary<String> entities, InstructionRejects rejects) {
         this.CSVAccessorConfig = CSVAccessorConfig;
+        this.entities = entities;
+        this.rejects = rejects;
+    }
+
+    public Dictionary<String> getEntities() {
+        return entities;
+    }
+
+    public Optional<FileVersion> getVersion() {
+        return version();
+    }
+
+    public InstructionCSVDAO withoutEntityIds() {
+        InstructionCSVDAO dao = new InstructionCSVDAO(CSVAccessorConfig, entities, rejects);
+        dao.encoded = false;
+        return dao;
+    }
+
+    public InstructionCSVDAO withoutRejects() {
+        InstructionCSVDAO dao = new InstructionCSVDAO(CSVAccessorConfig, entities, InstructionRejects.NoRejects);
+        dao.encoded = encoded;
+        return dao;
     }
 
     public List<Instruction> getByReceivedDate(LocalDate start, LocalDate end) {
-        return read().stream().filter(e ->
-                (e.getReceivedDate().isAfter(start) || e.getReceivedDate().isEqual(start))
-                        && (e.getReceivedDate().isBefore(end) || e.getReceivedDate().isEqual(end))
-        ).collect(toList());
+        return collectByReceivedDate(start, end, toList());
+    }
+
+    public <R> R collectByReceivedDate(LocalDate start, LocalDate end, Collector<Instruction, ?, R> collector) {
+        return collect(csvRecord -> parseByReceivedDate(csvRecord, start, end), collector);
+    }
+
+    public InstructionStore load() {
+        return collect(this::parse, InstructionStore.collector(entities));
+    }
+
+    public Stream<Instruction> streamByReceivedDate(LocalDate start, LocalDate end) {
+        return stream(csvRecord -> parseByReceivedDate(csvRecord, start, end));
+    }
+
+    public CSVTail<Instruction> tailByReceivedDate(LocalDate start, LocalDate end) {
+        return tail(csvRecord -> parseByReceivedDate(csvRecord, start, end));
+    }
+
+    public void ingest(VersionedInstructionStore store, long interval, TimeUnit unit) throws IOException, InterruptedException {
+        try (CSVTail<Instruction> instructions = tail(this::parse)) {
+            AtomicBoolean restarted = new AtomicBoolean();
+            while (!Thread.currentThread().isInterrupted()) {
+                long read = instructions.read(store::add, () -> {
+                    store.reset();
+                    restarted.set(true);
+                });
+                if (read > 0 || restarted.getAndSet(false))
+                    store.publish();
+                instructions.await(interval, unit);
+            }
+        }
+    }
+
+    protected Optional<Instruction> parse(CSVRow csvRow) {
+        try {
+            long start = PipelineMetrics.Parse.startSample();
+            InstructionCSVRejection rejection;
+            Instruction instruction;
+            try {
+                InstructionCSVColumns columns = bind(csvRow.getHeader());
+                rejection = columns.rejection;
+                rejection.clear();
+                LocalDate receivedDate = InstructionCSVParser.parseReceivedDate(csvRow.getChars(columns.receivedDate), rejection);
+                instruction = InstructionCSVParser.parse(csvRow, columns, receivedDate, encoded ? entities : null, rejection);
+            } finally {
+                PipelineMetrics.Parse.endSample(start);
+            }
+            return rejection.isRejected() ? reject(csvRow, rejection) : Optional.of(instruction);
+        } catch (RuntimeException e) {
+            rejects.reject(csvRow, e);
+            return Optional.empty();
+        }
     }
 
-    protected Optional<Instruction> parse(CSVRecord csvRecord) {
+    private Optional<Instruction> parseByReceivedDate(CSVRow csvRow, LocalDate start, LocalDate end) {
         try {
-            return Optional.of(InstructionCSVParser.parse(csvRecord.toMap()));
-        } catch (Throwable e) {
-            System.out.println("Cant' parse row " + csvRecord);
-            System.out.println(e.getMessage());
+            long filterStart = PipelineMetrics.Filter.startSample();
+            InstructionCSVColumns columns;
+            InstructionCSVRejection rejection;
+            LocalDate receivedDate;
+            try {
+                columns = bind(csvRow.getHeader());
+                rejection = columns.rejection;
+                rejection.clear();
+                receivedDate = InstructionCSVParser.parseReceivedDate(csvRow.getChars(columns.receivedDate), rejection);
+            } finally {
+                PipelineMetrics.Filter.endSample(filterStart);
+            }
+            boolean outOfRange = receivedDate != null && (receivedDate.isBefore(start) || receivedDate.isAfter(end));
+            if (receivedDate == null)
+                return reject(csvRow, rejection);
+            if (outOfRange) {
+                PipelineMetrics.Filter.addRejectedRows(1);
+                return Optional.empty();
+            }
+            long parseStart = PipelineMetrics.Parse.startSample();
+            Instruction instruction;
+            try {
+                instruction = InstructionCSVParser.parse(csvRow, columns, receivedDate, encoded ? entities : null, rejection);
+            } finally {
+                PipelineMetrics.Parse.endSample(parseStart);
+            }
+            return rejection.isRejected() ? reject(csvRow, rejection) : Optional.of(instruction);
+        } catch (RuntimeException e) {
+            rejects.reject(csvRow, e);
             return Optional.empty();
         }
     }
+
+    private InstructionCSVColumns bind(CSVHeader header) {
+        InstructionCSVColumns columns = this.columns.get();
+        if (columns == null || columns.header != header)
+            this.columns.set(columns = new InstructionCSVColumns(header));
+        return columns;
+    }
+
+    private Optional<Instruction> reject(CSVRow csvRow, InstructionCSVRejection rejection) {
+        rejects.reject(csvRow, rejection);
+        return Optional.empty();
+    }
 }
 
 
 /**
- * InstructionCSVFields describes fields of a CSV file record for an instruction (is a part of InstructionCSVDAO)
+ * InstructionCSVColumns binds fields of an instruction to column indexes of a CSV header (is a part of InstructionCSVDAO)
  */
 
-class InstructionCSVFields {
-    static String Entity = "Entity";
-    static String Type = "Buy/Sell";
-    static String ExchangeRate = "AgreedFx";
-    static String CurrencyCode = "Currency";
-    static String ReceivedDate = "InstructionDate";
-    static String SettlementDate = "SettlementDate";
-    static String UnitQuantity = "Units";
-    static String UnitPrice = "Price per unit";
+class InstructionCSVColumns {
+    CSVHeader header;
+    int entity;
+    int type;
+    int exchangeRate;
+    int currencyCode;
+    int receivedDate;
+    int settlementDate;
+    int unitQuantity;
+    int unitPrice;
+    InstructionCSVRejection rejection = new InstructionCSVRejection();
+
+    InstructionCSVColumns(CSVHeader header) {
+        this.header = header;
+        this.entity = header.getColumn(Entity);
+        this.type = header.getColumn(Type);
+        this.exchangeRate = header.getColumn(ExchangeRate);
+        this.currencyCode = header.getColumn(CurrencyCode);
+        this.receivedDate = header.getColumn(ReceivedDate);
+        this.settlementDate = header.getColumn(SettlementDate);
+        this.unitQuantity = header.getColumn(UnitQuantity);
+        this.unitPrice = header.getColumn(UnitPrice);
+    }
 }
 
 
@@ -68,94 +222,321 @@ class InstructionCSVFields {
  * InstructionCSVParser is responsible for data matching from a CSV record to an instruction (is a part of InstructionCSVDAO)
  * - contains some logic responsible for data validation which can be omitted -
  *   assuming that CSV file stored in the system already has valid data.
+ * - interns entity names with a dictionary (if it's given), so every instruction of an entity refers to the same name and id
+ * - parses values of a CSV row straight from its buffer (plain numbers, currency codes and types without creating strings),
+ *   so an instruction's entity name is the only string created for a row
+ * - parses dates with InstructionDateParser, which reuses recently parsed dates of a file
+ * - validates values without throwing exceptions: an invalid value is recorded as an error code to a rejection
+ *   (see: InstructionCSVRejection, InstructionCSVError) and a row is rejected after all its values are parsed,
+ *   only parsing of a record of a map throws an exception with the message of the first error
  */
 
 class InstructionCSVParser {
 
-    private static String DatePattern = "dd MMM yyyy";
     private static DateTimeFormatter DateFormat = DateTimeFormatter.ofPattern(DatePattern);
+    private static InstructionDateParser DateParser = new InstructionDateParser(DateFormat);
+
+    private static InstructionType[] InstructionTypes = InstructionType.values();
+    private static Currency[] Currencies = getCurrencies();
+    private static int MaxPlainDigits = 18;
+    private static long NoInt = Long.MIN_VALUE;
 
     static Instruction parse(Map<String, String> record) {
+        return parse(record, parseReceivedDate(record.get(ReceivedDate)));
+    }
+
+    static Instruction parse(Map<String, String> record, LocalDate receivedDate) {
+        InstructionCSVRejection rejection = new InstructionCSVRejection();
+        String entity = parseEntity(record.get(Entity), rejection);
+        return check(parse(record, receivedDate, entity, Instruction.NoEntityId, rejection), rejection);
+    }
+
+    static Instruction parse(Map<String, String> record, LocalDate receivedDate, Dictionary<String> entities) {
+        InstructionCSVRejection rejection = new InstructionCSVRejection();
+        String entity = parseEntity(record.get(Entity), rejection);
+        int entityId = entity == null ? Instruction.NoEntityId : entities.encode(entity);
+        return check(parse(record, receivedDate, entity == null ? null : entities.decode(entityId), entityId, rejection), rejection);
+    }
+
+    static Instruction parse(CSVRow row, InstructionCSVColumns columns, LocalDate receivedDate, Dictionary<String> entities,
+                             InstructionCSVRejection rejection) {
+        String entity = parseEntity(row.getChars(columns.entity), rejection);
+        int entityId = entity == null || entities == null ? Instruction.NoEntityId : entities.encode(entity);
+        return parse(
+                entityId == Instruction.NoEntityId ? entity : entities.decode(entityId),
+                entityId,
+                row.getChars(columns.type),
+                row.getChars(columns.exchangeRate),
+                row.getChars(columns.currencyCode),
+                receivedDate,
+                row.getChars(columns.settlementDate),
+                row.getChars(columns.unitQuantity),
+                row.getChars(columns.unitPrice),
+                rejection
+        );
+    }
+
+    private static Instruction parse(Map<String, String> record, LocalDate receivedDate, String entity, int entityId,
+                                     InstructionCSVRejection rejection) {
+        return parse(
+                entity,
+                entityId,
+                record.get(Type),
+                record.get(ExchangeRate),
+                record.get(CurrencyCode),
+                receivedDate,
+                record.get(SettlementDate),
+                record.get(UnitQuantity),
+                record.get(UnitPrice),
+                rejection
+        );
+    }
+
+    private static Instruction parse(String entity, int entityId, CharSequence type, CharSequence exchangeRate,
+                                     CharSequence currencyCode, LocalDate receivedDate, CharSequence settlementDate,
+                                     CharSequence unitQuantity, CharSequence unitPrice, InstructionCSVRejection rejection) {
+        InstructionType instructionType = parseInstructionType(type, rejection);
+        BigDecimal parsedExchangeRate = parseExchangeRate(exchangeRate, rejection);
+        Currency currency = parseCurrencyCode(currencyCode, rejection);
+        LocalDate parsedSettlementDate = parseDate(settlementDate, InstructionCSVError.INVALID_SETTLEMENT_DATE, rejection);
+        int parsedUnitQuantity = parseQuantity(unitQuantity, rejection);
+        BigDecimal parsedUnitPrice = parseUnitPrice(unitPrice, rejection);
+        if (rejection.isRejected())
+            return null;
         return new Instruction(
-                parseEntity(record.get(Entity)),
-                parseInstructionType(record.get(Type)),
-                parseExchangeRate(record.get(ExchangeRate)),
-                parseCurrencyCode(record.get(CurrencyCode)),
-                parseDate(record.get(ReceivedDate)),
-                parseDate(record.get(SettlementDate)),
-                parseQuantity(record.get(UnitQuantity)),
-                parseUnitPrice(record.get(UnitPrice))
+                entity,
+                entityId,
+                instructionType,
+                parsedExchangeRate,
+                currency,
+                receivedDate,
+                parsedSettlementDate,
+                parsedUnitQuantity,
+                parsedUnitPrice
         );
     }
 
-    private static String parseEntity(String value) {
-        if (value.trim().isEmpty())
-            throw new RuntimeException("Instruction's entity name can't be empty");
+    private static Instruction check(Instruction instruction, InstructionCSVRejection rejection) {
+        if (rejection.isRejected())
+            throw new RuntimeException(rejection.getMessage());
+        return instruction;
+    }
+
+    static LocalDate parseReceivedDate(CharSequence value) {
+        InstructionCSVRejection rejection = new InstructionCSVRejection();
+        LocalDate receivedDate = parseReceivedDate(value, rejection);
+        if (rejection.isRejected())
+            throw new RuntimeException(rejection.getMessage());
+        return receivedDate;
+    }
+
+    static LocalDate parseReceivedDate(CharSequence value, InstructionCSVRejection rejection) {
+        return parseDate(value, InstructionCSVError.INVALID_RECEIVED_DATE, rejection);
+    }
+
+    private static String parseEntity(CharSequence value, InstructionCSVRejection rejection) {
+        if (value == null)
+            return rejection.reject(InstructionCSVError.EMPTY_ENTITY, value);
+        int from = trimStart(value);
+        int to = trimEnd(value);
+        if (from == to)
+            return rejection.reject(InstructionCSVError.EMPTY_ENTITY, value);
         else
-            return value.trim();
+            return value.subSequence(from, to).toString();
     }
 
-    private static InstructionType parseInstructionType(String value) {
-        return InstructionType.getByName(value.trim()).orElseThrow(() ->
-                new RuntimeException("Instruction type '$value' isn't supported")
-        );
+    private static InstructionType parseInstructionType(CharSequence value, InstructionCSVRejection rejection) {
+        if (value != null) {
+            int from = trimStart(value);
+            int to = trimEnd(value);
+            for (InstructionType instructionType : InstructionTypes)
+                if (regionEquals(value, from, to, instructionType.getName()))
+                    return instructionType;
+        }
+        return rejection.reject(InstructionCSVError.UNSUPPORTED_TYPE, value);
     }
 
-    private static BigDecimal parseExchangeRate(String value) {
+    private static BigDecimal parseExchangeRate(CharSequence value, InstructionCSVRejection rejection) {
         BigDecimal result = parseBigDecimal(value);
-        if (result.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new RuntimeException("Instruction's value '" + value + "' is expected to be a positive (non zero) number");
-        }
+        if (result == null)
+            return rejection.reject(InstructionCSVError.INVALID_EXCHANGE_RATE, value);
+        if (result.compareTo(BigDecimal.ZERO) <= 0)
+            return rejection.reject(InstructionCSVError.NON_POSITIVE_EXCHANGE_RATE, value);
         return result;
     }
 
-    private static BigDecimal parseBigDecimal(String value) {
+    private static BigDecimal parseUnitPrice(CharSequence value, InstructionCSVRejection rejection) {
+        BigDecimal result = parseBigDecimal(value);
+        if (result == null)
+            return rejection.reject(InstructionCSVError.INVALID_UNIT_PRICE, value);
+        if (result.compareTo(BigDecimal.ZERO) < 0)
+            return rejection.reject(InstructionCSVError.NEGATIVE_UNIT_PRICE, value);
+        return result;
+    }
+
+    private static BigDecimal parseBigDecimal(CharSequence value) {
+        if (value == null)
+            return null;
+        int from = trimStart(value);
+        int to = trimEnd(value);
+        BigDecimal result = parsePlainDecimal(value, from, to);
+        if (result != null || !isDecimal(value, from, to))
+            return result;
         try {
-            return new BigDecimal(value.trim());
+            return new BigDecimal(value.subSequence(from, to).toString());
         } catch (NumberFormatException e) {
-            throw new RuntimeException("Instruction's value '" + value + "' is expected to be a decimal number");
+            // an exponent out of the range of a scale, the only error not found by isDecimal
+            return null;
         }
     }
 
-    private static BigDecimal parseUnitPrice(String value) {
-        BigDecimal result = parseBigDecimal(value);
-        if (result.compareTo(BigDecimal.ZERO) < 0) {
-            throw new RuntimeException("Instruction's value '" + value + "' is expected to be a positive number");
+    private static BigDecimal parsePlainDecimal(CharSequence value, int from, int to) {
+        boolean negative = from < to && value.charAt(from) == '-';
+        if (from < to && (negative || value.charAt(from) == '+'))
+            from++;
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                digits++;
+            } else if (c == '.' && scale < 0)
+                scale = to - i - 1;
+            else
+                return null;
         }
-        return result;
+        if (digits == 0 || digits > MaxPlainDigits)
+            return null;
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
     }
 
-    private static Currency parseCurrencyCode(String value) {
-        try {
-            return Currency.getInstance(value.trim());
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Instruction's value '" + value + "' isn't a supported currency code");
+    private static boolean isDecimal(CharSequence value, int from, int to) {
+        int i = from < to && (value.charAt(from) == '-' || value.charAt(from) == '+') ? from + 1 : from;
+        int digits = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9')
+                digits++;
+            else if (c == '.' && !point)
+                point = true;
+            else
+                break;
         }
+        if (digits == 0)
+            return false;
+        if (i == to)
+            return true;
+        if (value.charAt(i) != 'e' && value.charAt(i) != 'E')
+            return false;
+        i++;
+        if (i < to && (value.charAt(i) == '-' || value.charAt(i) == '+'))
+            i++;
+        if (i == to)
+            return false;
+        for (; i < to; i++)
+            if (value.charAt(i) < '0' || value.charAt(i) > '9')
+                return false;
+        return true;
     }
 
-    private static LocalDate parseDate(String value) {
-        try {
-            return LocalDate.parse(value, DateFormat);
-        } catch (IllegalArgumentException e) {
-            throw new RuntimeException("Instruction's value '" + value + "' isn't matching with required date format " + DatePattern);
+    private static Currency parseCurrencyCode(CharSequence value, InstructionCSVRejection rejection) {
+        int index = value == null ? -1 : getCurrencyIndex(value, trimStart(value), trimEnd(value));
+        Currency currency = index < 0 ? null : Currencies[index];
+        if (currency == null)
+            return rejection.reject(InstructionCSVError.UNSUPPORTED_CURRENCY, value);
+        return currency;
+    }
+
+    private static Currency[] getCurrencies() {
+        Currency[] currencies = new Currency[26 * 26 * 26];
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            String code = currency.getCurrencyCode();
+            int index = getCurrencyIndex(code, 0, code.length());
+            if (index >= 0)
+                currencies[index] = currency;
         }
+        return currencies;
+    }
+
+    private static int getCurrencyIndex(CharSequence value, int from, int to) {
+        if (to - from != 3)
+            return -1;
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 'A' || c > 'Z')
+                return -1;
+            index = index * 26 + (c - 'A');
+        }
+        return index;
+    }
+
+    private static LocalDate parseDate(CharSequence value, InstructionCSVError error, InstructionCSVRejection rejection) {
+        LocalDate date = DateParser.tryParse(value);
+        if (date == null)
+            return rejection.reject(error, value, DateParser);
+        return date;
     }
 
-    private static int parseQuantity(String value) {
-        int result = parseInt(value);
+    private static int parseQuantity(CharSequence value, InstructionCSVRejection rejection) {
+        long result = parseInt(value);
+        if (result == NoInt) {
+            rejection.reject(InstructionCSVError.INVALID_UNIT_QUANTITY, value);
+            return 0;
+        }
         if (result < 0) {
-            throw new RuntimeException("Instruction's value '$value' is expected to be a positive number");
+            rejection.reject(InstructionCSVError.NEGATIVE_UNIT_QUANTITY, value);
+            return 0;
         }
-        return result;
+        return (int) result;
     }
 
-    private static int parseInt(String value) {
-        try {
-            return Integer.parseInt(value.trim());
-        } catch (NumberFormatException e) {
-            throw new RuntimeException("Instruction's value '" + value + "' is expected to be a number");
+    private static long parseInt(CharSequence value) {
+        if (value == null)
+            return NoInt;
+        int from = trimStart(value);
+        int to = trimEnd(value);
+        boolean negative = from < to && value.charAt(from) == '-';
+        int i = from < to && (negative || value.charAt(from) == '+') ? from + 1 : from;
+        if (i == to)
+            return NoInt;
+        long result = 0;
+        for (; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9')
+                return NoInt;
+            result = result * 10 + (c - '0');
+            if (result > (long) Integer.MAX_VALUE + 1)
+                return NoInt;
         }
+        if (negative)
+            return -result;
+        return result > Integer.MAX_VALUE ? NoInt : result;
     }
-}
 
+    private static int trimStart(CharSequence value) {
+        int from = 0;
+        while (from < value.length() && value.charAt(from) <= ' ')
+            from++;
+        return from;
+    }
+
+    private static int trimEnd(CharSequence value) {
+        int to = value.length();
+        while (to > 0 && value.charAt(to - 1) <= ' ')
+            to--;
+        return Math.max(to, trimStart(value));
+    }
 
+    private static boolean regionEquals(CharSequence value, int from, int to, String s) {
+        if (to - from != s.length())
+            return false;
+        for (int i = 0; i < s.length(); i++)
+            if (value.charAt(from + i) != s.charAt(i))
+                return false;
+        return true;
+    }
+}
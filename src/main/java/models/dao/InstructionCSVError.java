@@ -0,0 +1,47 @@
+package models.dao;
+
+import static models.dao.InstructionCSVFields.*;
+
+/**
+ * InstructionCSVError is an enum of reasons a CSV row can't be parsed into an instruction (is a part of InstructionCSVParser):
+ * - names the field and the reason of an error, so rejected rows can be counted by both (see: InstructionRejects)
+ * - formats the message of an error with the rejected value only when the message is needed
+ *   (a rejection replaces the message of an invalid date with the date formatter's, see: InstructionCSVRejection)
+ */
+
+enum InstructionCSVError {
+    EMPTY_ENTITY(Entity, "empty", "Instruction's entity name can't be empty"),
+    UNSUPPORTED_TYPE(Type, "unsupported", "Instruction type '%s' isn't supported"),
+    INVALID_EXCHANGE_RATE(ExchangeRate, "not a number", "Instruction's value '%s' is expected to be a decimal number"),
+    NON_POSITIVE_EXCHANGE_RATE(ExchangeRate, "not positive", "Instruction's value '%s' is expected to be a positive (non zero) number"),
+    UNSUPPORTED_CURRENCY(CurrencyCode, "unsupported", "Instruction's value '%s' isn't a supported currency code"),
+    INVALID_RECEIVED_DATE(ReceivedDate, "not a date", "Instruction's value '%s' isn't matching with required date format " + DatePattern),
+    INVALID_SETTLEMENT_DATE(SettlementDate, "not a date", "Instruction's value '%s' isn't matching with required date format " + DatePattern),
+    INVALID_UNIT_QUANTITY(UnitQuantity, "not a number", "Instruction's value '%s' is expected to be a number"),
+    NEGATIVE_UNIT_QUANTITY(UnitQuantity, "negative", "Instruction's value '%s' is expected to be a positive number"),
+    INVALID_UNIT_PRICE(UnitPrice, "not a number", "Instruction's value '%s' is expected to be a decimal number"),
+    NEGATIVE_UNIT_PRICE(UnitPrice, "negative", "Instruction's value '%s' is expected to be a positive number"),
+    UNEXPECTED("Row", "unexpected", "%s");
+
+    private final String field;
+    private final String reason;
+    private final String message;
+
+    InstructionCSVError(String field, String reason, String message) {
+        this.field = field;
+        this.reason = reason;
+        this.message = message;
+    }
+
+    String getField() {
+        return field;
+    }
+
+    String getReason() {
+        return reason;
+    }
+
+    String getMessage(String value) {
+        return String.format(message, value);
+    }
+}
@@ -0,0 +1,19 @@
+package models.dao;
+
+/**
+ * InstructionCSVFields describes fields of a CSV file record for an instruction (is a part of InstructionCSVDAO):
+ * - names of the columns of a CSV header
+ * - the pattern of dates of received and settlement date columns
+ */
+
+class InstructionCSVFields {
+    static String Entity = "Entity";
+    static String Type = "Buy/Sell";
+    static String ExchangeRate = "AgreedFx";
+    static String CurrencyCode = "Currency";
+    static String ReceivedDate = "InstructionDate";
+    static String SettlementDate = "SettlementDate";
+    static String UnitQuantity = "Units";
+    static String UnitPrice = "Price per unit";
+    static String DatePattern = "dd MMM yyyy";
+}
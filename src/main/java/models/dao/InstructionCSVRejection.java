@@ -0,0 +1,41 @@
+package models.dao;
+
+/**
+ * InstructionCSVRejection keeps the first error of a row being parsed (is a part of InstructionCSVParser):
+ * - is reused for rows parsed on the same thread (see: InstructionCSVColumns), so a valid row doesn't create it
+ * - keeps the parser of an invalid date, so its message is the date formatter's (see: InstructionDateParser.getMessage)
+ */
+
+class InstructionCSVRejection {
+    InstructionCSVError error;
+    String value;
+    InstructionDateParser dateParser;
+
+    <T> T reject(InstructionCSVError error, CharSequence value) {
+        return reject(error, value, null);
+    }
+
+    <T> T reject(InstructionCSVError error, CharSequence value, InstructionDateParser dateParser) {
+        if (this.error == null) {
+            this.error = error;
+            this.value = value == null ? null : value.toString();
+            this.dateParser = dateParser;
+        }
+        return null;
+    }
+
+    boolean isRejected() {
+        return error != null;
+    }
+
+    String getMessage() {
+        String message = dateParser == null || value == null ? null : dateParser.getMessage(value);
+        return message != null ? message : error.getMessage(value);
+    }
+
+    void clear() {
+        error = null;
+        value = null;
+        dateParser = null;
+    }
+}
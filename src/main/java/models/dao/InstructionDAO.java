@@ -0,0 +1,44 @@
+package models.dao;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import utils.FileVersion;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collector;
+
+/**
+ * InstructionDAO is an interface of data access classes for instructions:
+ * - entity ids of instructions refer to the dictionary returned by getEntities
+ * - getVersion identifies the current content of the data source (empty if it can't be identified),
+ *   so results calculated from it can be cached
+ * - withoutEntityIds returns a data access object of the same instructions which doesn't encode entity names
+ *   (their ids are NoEntityId), so a caller which doesn't group entities by ids doesn't fill the dictionary
+ *   (a data source which has encoded its entities already returns itself)
+ * - withoutRejects returns a data access object of the same instructions which doesn't report invalid records again,
+ *   f.e. for a second pass over instructions (a data source without invalid records returns itself)
+ */
+
+public interface InstructionDAO {
+
+    List<Instruction> getByReceivedDate(LocalDate start, LocalDate end);
+
+    <R> R collectByReceivedDate(LocalDate start, LocalDate end, Collector<Instruction, ?, R> collector);
+
+    InstructionStore load();
+
+    Dictionary<String> getEntities();
+
+    Optional<FileVersion> getVersion();
+
+    default InstructionDAO withoutEntityIds() {
+        return this;
+    }
+
+    default InstructionDAO withoutRejects() {
+        return this;
+    }
+}
@@ -0,0 +1,144 @@
+package models.dao;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * InstructionDateParser parses dates of the "dd MMM yyyy" pattern (is a part of InstructionCSVParser):
+ * - reads the day and the year as digits and looks the month up in a table of short month names of the formatter's locale
+ * - keeps recently parsed dates in a small direct-mapped cache, so a date repeated within a file is created once
+ * - falls back to the formatter for anything else than a valid date of the exact pattern,
+ *   so results (f.e. a 31 of February resolved by the formatter) and error messages are the same as the formatter's
+ * - can parse a date without throwing an exception (tryParse returns null for a value which isn't a date),
+ *   checking the pattern with the formatter before resolving a date which the fast path doesn't handle
+ * - can be shared between threads (a cache entry is immutable and replaced as a whole)
+ */
+
+class InstructionDateParser {
+
+    private static int CacheSize = 1 << 10;
+
+    private DateTimeFormatter formatter;
+    private String[] monthNames;
+    private Month[] months;
+    private Entry[] cache = new Entry[CacheSize];
+
+    InstructionDateParser(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+        DateTimeFormatter monthFormat = DateTimeFormatter.ofPattern("MMM", formatter.getLocale());
+        this.months = Month.values();
+        Arrays.sort(months, Comparator.comparingInt((Month m) -> monthFormat.format(m).length()).reversed());
+        this.monthNames = new String[months.length];
+        for (int i = 0; i < months.length; i++)
+            monthNames[i] = monthFormat.format(months[i]);
+    }
+
+    LocalDate parse(CharSequence value) {
+        int key = getKey(value);
+        if (key < 0)
+            return LocalDate.parse(value, formatter);
+        return getDate(key);
+    }
+
+    // the formatter's message of a value which isn't a date, null for a date
+    String getMessage(CharSequence value) {
+        try {
+            parse(value);
+            return null;
+        } catch (DateTimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    LocalDate tryParse(CharSequence value) {
+        if (value == null)
+            return null;
+        int key = getKey(value);
+        if (key >= 0)
+            return getDate(key);
+
+        ParsePosition position = new ParsePosition(0);
+        if (formatter.parseUnresolved(value, position) == null || position.getIndex() != value.length())
+            return null;
+        try {
+            return LocalDate.parse(value, formatter);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private LocalDate getDate(int key) {
+        int slot = (key ^ (key >>> 10)) & (CacheSize - 1);
+        Entry entry = cache[slot];
+        if (entry == null || entry.key != key) {
+            entry = new Entry(key, LocalDate.of(key >>> 9, (key >>> 5) & 0xF, key & 0x1F));
+            cache[slot] = entry;
+        }
+        return entry.date;
+    }
+
+    private int getKey(CharSequence value) {
+        int length = value.length();
+        if (length < 3 || !isDigit(value.charAt(0)) || !isDigit(value.charAt(1)) || value.charAt(2) != ' ')
+            return -1;
+        int day = (value.charAt(0) - '0') * 10 + (value.charAt(1) - '0');
+
+        int month = findMonth(value, 3);
+        if (month < 0)
+            return -1;
+        int position = 3 + monthNames[month].length();
+        if (length != position + 5 || value.charAt(position) != ' ')
+            return -1;
+
+        int year = 0;
+        for (int i = position + 1; i < length; i++) {
+            if (!isDigit(value.charAt(i)))
+                return -1;
+            year = year * 10 + (value.charAt(i) - '0');
+        }
+        if (year < 1 || day < 1 || day > months[month].length(isLeap(year)))
+            return -1;
+
+        return (year << 9) | (months[month].getValue() << 5) | day;
+    }
+
+    private int findMonth(CharSequence value, int position) {
+        for (int month = 0; month < monthNames.length; month++)
+            if (regionEquals(value, position, monthNames[month]))
+                return month;
+        return -1;
+    }
+
+    private static boolean regionEquals(CharSequence value, int position, String s) {
+        if (value.length() - position < s.length())
+            return false;
+        for (int i = 0; i < s.length(); i++)
+            if (value.charAt(position + i) != s.charAt(i))
+                return false;
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLeap(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+
+    private static class Entry {
+        private final int key;
+        private final LocalDate date;
+
+        Entry(int key, LocalDate date) {
+            this.key = key;
+            this.date = date;
+        }
+    }
+}
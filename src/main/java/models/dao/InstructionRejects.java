@@ -0,0 +1,154 @@
+package models.dao;
+
+import csv.CSVRow;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import utils.metrics.PipelineMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static models.dao.InstructionCSVFields.*;
+
+/**
+ * InstructionRejects handles CSV rows which can't be parsed into instructions (is a part of InstructionCSVDAO):
+ * - counts rejected rows by the field and the reason of an error (f.e. "Units: negative"), the counters can be updated
+ *   by rows parsed in parallel without locking
+ * - logs no more than LogLimit rejected rows per LogInterval and then the number of rows it didn't log,
+ *   so a file with many invalid rows isn't slowed down by writing to a console
+ * - can write rejected rows with their errors to a CSV file (a reject file), so they can be fixed and loaded again
+ * - prints the counters when it's closed if any row was rejected
+ * - NoRejects ignores rejected rows, f.e. for a repeated read of rows which were already rejected once
+ */
+
+public class InstructionRejects implements Closeable {
+
+    private static int LogLimit = 10;
+    private static long LogInterval = TimeUnit.SECONDS.toNanos(1);
+    private static String[] Columns = {Entity, Type, ExchangeRate, CurrencyCode, ReceivedDate, SettlementDate, UnitQuantity, UnitPrice};
+    private static String ErrorColumn = "Error";
+
+    public static InstructionRejects NoRejects = new InstructionRejects(false);
+
+    private InstructionCSVError[] errors = InstructionCSVError.values();
+    private LongAdder[] counts = new LongAdder[errors.length];
+
+    private Path rejectFile;
+    private CSVPrinter printer;
+
+    private long logStart = System.nanoTime();
+    private int logged;
+    private long suppressed;
+    private boolean reported;
+
+    public InstructionRejects() {
+        this(true);
+    }
+
+    private InstructionRejects(boolean reported) {
+        this.reported = reported;
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    public InstructionRejects(Path rejectFile) throws IOException {
+        this();
+        this.rejectFile = rejectFile;
+        String[] header = new String[Columns.length + 1];
+        System.arraycopy(Columns, 0, header, 0, Columns.length);
+        header[Columns.length] = ErrorColumn;
+        this.printer = new CSVPrinter(Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8), CSVFormat.DEFAULT.withHeader(header));
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder adder : counts)
+            count += adder.sum();
+        return count;
+    }
+
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (InstructionCSVError error : errors) {
+            long count = counts[error.ordinal()].sum();
+            if (count > 0)
+                result.merge(error.getField() + ": " + error.getReason(), count, Long::sum);
+        }
+        return result;
+    }
+
+    void reject(CSVRow csvRow, InstructionCSVRejection rejection) {
+        reject(csvRow, rejection.error, rejection.getMessage());
+    }
+
+    void reject(CSVRow csvRow, Throwable e) {
+        reject(csvRow, InstructionCSVError.UNEXPECTED, String.valueOf(e));
+    }
+
+    private void reject(CSVRow csvRow, InstructionCSVError error, String message) {
+        if (!reported)
+            return;
+        counts[error.ordinal()].increment();
+        PipelineMetrics.Parse.addRejectedRows(1);
+        log(csvRow, message);
+        write(csvRow, message);
+    }
+
+    private synchronized void log(CSVRow csvRow, String message) {
+        long now = System.nanoTime();
+        if (now - logStart >= LogInterval) {
+            printSuppressed();
+            logStart = now;
+            logged = 0;
+        }
+        if (logged < LogLimit) {
+            logged++;
+            System.out.println("Cant' parse row " + csvRow);
+            System.out.println(message);
+        } else
+            suppressed++;
+    }
+
+    private void printSuppressed() {
+        if (suppressed > 0)
+            System.out.println("Cant' parse " + suppressed + " more rows");
+        suppressed = 0;
+    }
+
+    private synchronized void write(CSVRow csvRow, String message) {
+        if (printer == null)
+            return;
+        try {
+            for (String column : Columns)
+                printer.print(csvRow.get(column));
+            printer.print(message);
+            printer.println();
+        } catch (IOException e) {
+            System.out.println("Can't write reject file " + rejectFile);
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        printSuppressed();
+        if (getCount() > 0)
+            System.out.println("Rejected " + getCount() + " rows " + getCounts());
+        if (printer == null)
+            return;
+        try {
+            printer.close();
+            printer = null;
+        } catch (IOException e) {
+            System.out.println("Can't write reject file " + rejectFile);
+            e.printStackTrace();
+        }
+    }
+}
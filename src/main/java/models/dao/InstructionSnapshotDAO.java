@@ -0,0 +1,223 @@
+package models.dao;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import models.InstructionType;
+import utils.FileVersion;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collector;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * InstructionSnapshotDAO is a data access class for instructions stored in a binary snapshot file:
+ * - implements InstructionDAO interface
+ * - memory-maps the snapshot, so instructions are read without any text parsing
+ * - finds the first instruction of a date range by a binary search (records are sorted by received dates)
+ * - its version is the version of the snapshot file when it was opened (the mapped content doesn't change after that)
+ * - maps entity ids of the snapshot to ids of the shared entities dictionary once, when the snapshot is opened
+ * - reads values which don't fit a fixed-width record (more than 18 digits) from the decimals of the snapshot
+ * - a snapshot is created from any other data access object by InstructionSnapshotWriter
+ */
+
+public class InstructionSnapshotDAO implements InstructionDAO {
+
+    private static InstructionType[] InstructionTypes = InstructionType.values();
+
+    private Dictionary<String> entities;
+    private int[] entityIds = new int[0];
+    private Currency[] currencies = new Currency[0];
+    private BigDecimal[] decimals = new BigDecimal[0];
+    private ByteBuffer[] segments = new ByteBuffer[0];
+    private int size;
+    private Optional<FileVersion> version = Optional.empty();
+
+    public InstructionSnapshotDAO(Path snapshotPath, Dictionary<String> entities) {
+        this.entities = entities;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            version = Optional.of(FileVersion.of(snapshotPath));
+            open(channel);
+        } catch (IOException e) {
+            System.out.println("Can't read snapshot file " + snapshotPath);
+            e.printStackTrace();
+            size = 0;
+            version = Optional.empty();
+        }
+    }
+
+    public List<Instruction> getByReceivedDate(LocalDate start, LocalDate end) {
+        return collectByReceivedDate(start, end, toList());
+    }
+
+    public <R> R collectByReceivedDate(LocalDate start, LocalDate end, Collector<Instruction, ?, R> collector) {
+        return collect(start.toEpochDay(), end.toEpochDay(), collector);
+    }
+
+    public InstructionStore load() {
+        InstructionStore instructions = new InstructionStore(entities);
+        for (int index = 0; index < size; index++) {
+            ByteBuffer segment = getSegment(index);
+            int offset = getOffset(index);
+            if (isDecimal(segment.get(offset + InstructionSnapshotFormat.UnitPriceScale))
+                    || isDecimal(segment.get(offset + InstructionSnapshotFormat.ExchangeRateScale))) {
+                instructions.add(get(index));
+                continue;
+            }
+            instructions.add(
+                    segment.getInt(offset + InstructionSnapshotFormat.ReceivedDate),
+                    segment.getInt(offset + InstructionSnapshotFormat.SettlementDate),
+                    InstructionTypes[segment.get(offset + InstructionSnapshotFormat.Type)],
+                    entityIds[segment.getInt(offset + InstructionSnapshotFormat.Entity)],
+                    currencies[segment.getShort(offset + InstructionSnapshotFormat.Currency)],
+                    segment.getInt(offset + InstructionSnapshotFormat.UnitQuantity),
+                    segment.getLong(offset + InstructionSnapshotFormat.UnitPrice),
+                    segment.get(offset + InstructionSnapshotFormat.UnitPriceScale),
+                    segment.getLong(offset + InstructionSnapshotFormat.ExchangeRate),
+                    segment.get(offset + InstructionSnapshotFormat.ExchangeRateScale)
+            );
+        }
+        return instructions;
+    }
+
+    public static boolean isSnapshot(Path snapshotPath) {
+        if (Files.notExists(snapshotPath))
+            return false;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining())
+                if (channel.read(header) < 0)
+                    return false;
+            header.flip();
+            return header.getInt() == InstructionSnapshotFormat.Magic
+                    && header.getInt() == InstructionSnapshotFormat.Version;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public Dictionary<String> getEntities() {
+        return entities;
+    }
+
+    public Optional<FileVersion> getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private <A, R> R collect(long start, long end, Collector<Instruction, A, R> collector) {
+        A result = collector.supplier().get();
+        for (int index = findFirst(start); index < size && getReceivedEpochDay(index) <= end; index++)
+            collector.accumulator().accept(result, get(index));
+        return collector.finisher().apply(result);
+    }
+
+    private int findFirst(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getReceivedEpochDay(middle) < epochDay)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    private int getReceivedEpochDay(int index) {
+        return getSegment(index).getInt(getOffset(index) + InstructionSnapshotFormat.ReceivedDate);
+    }
+
+    private Instruction get(int index) {
+        ByteBuffer segment = getSegment(index);
+        int offset = getOffset(index);
+        int entityId = entityIds[segment.getInt(offset + InstructionSnapshotFormat.Entity)];
+        return new Instruction(
+                entities.decode(entityId),
+                entityId,
+                InstructionTypes[segment.get(offset + InstructionSnapshotFormat.Type)],
+                getDecimal(
+                        segment.getLong(offset + InstructionSnapshotFormat.ExchangeRate),
+                        segment.get(offset + InstructionSnapshotFormat.ExchangeRateScale)),
+                currencies[segment.getShort(offset + InstructionSnapshotFormat.Currency)],
+                LocalDate.ofEpochDay(segment.getInt(offset + InstructionSnapshotFormat.ReceivedDate)),
+                LocalDate.ofEpochDay(segment.getInt(offset + InstructionSnapshotFormat.SettlementDate)),
+                segment.getInt(offset + InstructionSnapshotFormat.UnitQuantity),
+                getDecimal(
+                        segment.getLong(offset + InstructionSnapshotFormat.UnitPrice),
+                        segment.get(offset + InstructionSnapshotFormat.UnitPriceScale))
+        );
+    }
+
+    private BigDecimal getDecimal(long unscaledValue, byte scale) {
+        return isDecimal(scale) ? decimals[(int) unscaledValue] : BigDecimal.valueOf(unscaledValue, scale);
+    }
+
+    private static boolean isDecimal(byte scale) {
+        return scale == InstructionSnapshotFormat.DecimalScale;
+    }
+
+    private ByteBuffer getSegment(int index) {
+        return segments[index / InstructionSnapshotFormat.SegmentRecords];
+    }
+
+    private int getOffset(int index) {
+        return (index % InstructionSnapshotFormat.SegmentRecords) * InstructionSnapshotFormat.RecordSize;
+    }
+
+    private void open(FileChannel channel) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, InstructionSnapshotFormat.HeaderSize);
+        if (header.getInt() != InstructionSnapshotFormat.Magic || header.getInt() != InstructionSnapshotFormat.Version)
+            throw new IOException("File isn't an instruction snapshot of version " + InstructionSnapshotFormat.Version);
+        int recordCount = header.getInt();
+        int entityCount = header.getInt();
+        int currencyCount = header.getInt();
+        int decimalCount = header.getInt();
+        long recordsOffset = header.getLong();
+
+        ByteBuffer dictionaries = channel.map(FileChannel.MapMode.READ_ONLY,
+                InstructionSnapshotFormat.HeaderSize, recordsOffset - InstructionSnapshotFormat.HeaderSize);
+        entityIds = new int[entityCount];
+        for (int i = 0; i < entityCount; i++)
+            entityIds[i] = entities.encode(readString(dictionaries));
+        currencies = new Currency[currencyCount];
+        for (int i = 0; i < currencyCount; i++)
+            currencies[i] = Currency.getInstance(readString(dictionaries));
+        decimals = new BigDecimal[decimalCount];
+        for (int i = 0; i < decimalCount; i++)
+            decimals[i] = new BigDecimal(readString(dictionaries));
+
+        int segmentCount = (recordCount + InstructionSnapshotFormat.SegmentRecords - 1) / InstructionSnapshotFormat.SegmentRecords;
+        segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i * InstructionSnapshotFormat.SegmentRecords;
+            long count = Math.min(InstructionSnapshotFormat.SegmentRecords, recordCount - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    recordsOffset + first * InstructionSnapshotFormat.RecordSize,
+                    count * InstructionSnapshotFormat.RecordSize);
+        }
+        size = recordCount;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package models.dao;
+
+/**
+ * InstructionSnapshotFormat describes a binary snapshot file of instructions (is a part of InstructionSnapshotDAO):
+ * - header: magic, version, number of records, entities, currencies and decimals, offset of the first record
+ * - dictionaries: entity names, currency codes and decimals (UTF-8 with an unsigned short length), their ids are their indexes
+ * - records: fixed-width, sorted by received dates, fields are described by their offsets below
+ *   (a value with DecimalScale as its scale is the index of a decimal instead of an unscaled long)
+ */
+
+class InstructionSnapshotFormat {
+    static int Magic = 0x494E5354;
+    static int Version = 2;
+    static int HeaderSize = 32;
+    static byte DecimalScale = Byte.MIN_VALUE;
+
+    static int ReceivedDate = 0;
+    static int SettlementDate = 4;
+    static int Type = 8;
+    static int Entity = 9;
+    static int Currency = 13;
+    static int UnitQuantity = 15;
+    static int UnitPrice = 19;
+    static int UnitPriceScale = 27;
+    static int ExchangeRate = 28;
+    static int ExchangeRateScale = 36;
+    static int RecordSize = 37;
+
+    static int SegmentRecords = 1 << 24;
+}
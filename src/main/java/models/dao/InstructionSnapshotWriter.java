@@ -0,0 +1,131 @@
+package models.dao;
+
+import models.Dictionary;
+import models.InstructionStore;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * InstructionSnapshotWriter converts instructions into a binary snapshot file (see: InstructionSnapshotDAO):
+ * - reads all instructions of a data access object (f.e. InstructionCSVDAO) once
+ * - sorts records by received dates, so a snapshot can be searched by a date range
+ * - writes a unit price and an exchange rate which don't fit a fixed-width record (see: InstructionStore)
+ *   as decimal strings after the dictionaries, their records refer to them by indexes
+ * - writes a temporary file first and replaces the snapshot with it, so readers never see a partial snapshot
+ *   (the temporary file is deleted if the snapshot can't be written)
+ */
+
+public class InstructionSnapshotWriter {
+
+    public static void convert(InstructionDAO source, Path snapshotPath) throws IOException {
+        write(source.load(), snapshotPath);
+    }
+
+    public static void write(InstructionStore instructions, Path snapshotPath) throws IOException {
+        Dictionary<String> entities = new Dictionary<>();
+        Dictionary<Currency> currencies = new Dictionary<>();
+        int[] rows = sortByReceivedDate(instructions);
+        int[] entityIds = new int[rows.length];
+        int[] currencyIds = new int[rows.length];
+        List<BigDecimal> decimals = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            entityIds[i] = entities.encode(instructions.getEntity(rows[i]));
+            currencyIds[i] = currencies.encode(instructions.getCurrency(rows[i]));
+            if (!instructions.isFixedPoint(rows[i])) {
+                decimals.add(instructions.getUnitPrice(rows[i]));
+                decimals.add(instructions.getExchangeRate(rows[i]));
+            }
+        }
+
+        Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+                byte[][] entityNames = encode(entities);
+                byte[][] currencyCodes = encode(currencies);
+                byte[][] decimalValues = encode(decimals);
+
+                out.writeInt(InstructionSnapshotFormat.Magic);
+                out.writeInt(InstructionSnapshotFormat.Version);
+                out.writeInt(rows.length);
+                out.writeInt(entityNames.length);
+                out.writeInt(currencyCodes.length);
+                out.writeInt(decimalValues.length);
+                out.writeLong(InstructionSnapshotFormat.HeaderSize + length(entityNames) + length(currencyCodes) + length(decimalValues));
+
+                write(out, entityNames);
+                write(out, currencyCodes);
+                write(out, decimalValues);
+
+                int decimal = 0;
+                for (int i = 0; i < rows.length; i++) {
+                    int row = rows[i];
+                    boolean fixedPoint = instructions.isFixedPoint(row);
+                    out.writeInt(instructions.getReceivedEpochDay(row));
+                    out.writeInt(instructions.getSettlementEpochDay(row));
+                    out.writeByte(instructions.getInstructionType(row).ordinal());
+                    out.writeInt(entityIds[i]);
+                    out.writeShort(currencyIds[i]);
+                    out.writeInt(instructions.getUnitQuantity(row));
+                    out.writeLong(fixedPoint ? instructions.getUnscaledUnitPrice(row) : decimal++);
+                    out.writeByte(fixedPoint ? instructions.getUnitPriceScale(row) : InstructionSnapshotFormat.DecimalScale);
+                    out.writeLong(fixedPoint ? instructions.getUnscaledExchangeRate(row) : decimal++);
+                    out.writeByte(fixedPoint ? instructions.getExchangeRateScale(row) : InstructionSnapshotFormat.DecimalScale);
+                }
+            }
+            Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+    }
+
+    private static int[] sortByReceivedDate(InstructionStore instructions) {
+        long[] keys = new long[instructions.size()];
+        for (int row = 0; row < keys.length; row++)
+            keys[row] = ((long) instructions.getReceivedEpochDay(row) << 32) | row;
+        Arrays.sort(keys);
+        return Arrays.stream(keys).mapToInt(key -> (int) key).toArray();
+    }
+
+    private static byte[][] encode(Dictionary<?> dictionary) {
+        byte[][] values = new byte[dictionary.size()][];
+        for (int id = 0; id < values.length; id++) {
+            values[id] = dictionary.decode(id).toString().getBytes(StandardCharsets.UTF_8);
+            if (values[id].length > 0xFFFF)
+                throw new IllegalArgumentException("Value '" + dictionary.decode(id) + "' is too long for a snapshot");
+        }
+        return values;
+    }
+
+    private static byte[][] encode(List<BigDecimal> decimals) {
+        byte[][] values = new byte[decimals.size()][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decimals.get(i).toString().getBytes(StandardCharsets.UTF_8);
+            if (values[i].length > 0xFFFF)
+                throw new IllegalArgumentException("Value '" + decimals.get(i) + "' is too long for a snapshot");
+        }
+        return values;
+    }
+
+    private static long length(byte[][] values) {
+        return Arrays.stream(values).mapToLong(value -> 2 + value.length).sum();
+    }
+
+    private static void write(DataOutputStream out, byte[][] values) throws IOException {
+        for (byte[] value : values) {
+            out.writeShort(value.length);
+            out.write(value);
+        }
+    }
+}
@@ -6,15 +6,19 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Currency;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.IntStream;
-
-import static java.util.stream.Collectors.toList;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
  * SettlementDateCalculator is responsible for calculation of an instruction's settlement date:
  * - list of currencies which define shifted weekends can be extended later
+ *   (any weekend profile can be configured for any currency through the constructor)
+ * - builds lookup tables once: days till the next work day by a day of week for every weekend profile
+ *   and a weekend profile by a currency's numeric code, so an adjustment is a couple of array reads
  */
 
 public class SettlementDateCalculator {
@@ -23,55 +27,77 @@ public class SettlementDateCalculator {
             Currency.getInstance("SAR")
     );
 
-    private static List<Integer> WeekDays = range(DayOfWeek.MONDAY, DayOfWeek.SUNDAY);
-    private static int WeekFirstDay = WeekDays.get(0);
-    private static int WeekLastDay = WeekDays.get(WeekDays.size() - 1);
+    private static Set<DayOfWeek> WeekendDays = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+    private static Set<DayOfWeek> ShiftedWeekendDays = EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+
+    private static int DaysInWeek = DayOfWeek.values().length;
+    private static int MaxNumericCode = 999;
 
-    private static List<Integer> WeekendDays = range(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
-    private static List<Integer> ShiftedWeekendDays = range(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+    private int[] defaultShifts;
+    private int[][] shiftsByNumericCode = new int[MaxNumericCode + 1][];
+    private Map<Currency, int[]> shiftsByCurrency = new HashMap<>();
 
-    private static List<Integer> range(DayOfWeek from, DayOfWeek to) {
-        return IntStream.rangeClosed(from.getValue(), to.getValue()).boxed().collect(toList());
+    public SettlementDateCalculator() {
+        this(WeekendDays, shiftedWeekends());
     }
 
+    public SettlementDateCalculator(Set<DayOfWeek> defaultWeekend, Map<Currency, Set<DayOfWeek>> weekendsByCurrency) {
+        Map<Set<DayOfWeek>, int[]> profiles = new HashMap<>();
+        defaultShifts = profiles.computeIfAbsent(defaultWeekend, SettlementDateCalculator::calculateShifts);
+        weekendsByCurrency.forEach((currency, weekend) -> {
+            int[] shifts = profiles.computeIfAbsent(weekend, SettlementDateCalculator::calculateShifts);
+            int numericCode = currency.getNumericCode();
+            if (numericCode > 0 && numericCode <= MaxNumericCode)
+                shiftsByNumericCode[numericCode] = shifts;
+            else
+                shiftsByCurrency.put(currency, shifts);
+        });
+    }
 
-    public LocalDate calculate(Instruction instruction) {
-        return calculate(instruction.getSettlementDate(), instruction.getReceivedDate(), instruction.getCurrency());
+    private static Map<Currency, Set<DayOfWeek>> shiftedWeekends() {
+        Map<Currency, Set<DayOfWeek>> weekends = new HashMap<>();
+        ShiftedWeekendCurrencies.forEach(currency -> weekends.put(currency, ShiftedWeekendDays));
+        return weekends;
     }
 
-    private LocalDate calculate(LocalDate settlementDate, LocalDate receivedDate, Currency currency) {
-        if (settlementDate.isBefore(receivedDate))
-            return calculate(receivedDate, currency);
-        else
-            return calculate(settlementDate, currency);
+    private static int[] calculateShifts(Set<DayOfWeek> weekend) {
+        if (weekend.size() >= DaysInWeek)
+            throw new IllegalArgumentException("Weekend " + weekend + " doesn't leave any work days");
+        int[] shifts = new int[DaysInWeek];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int shift = 0;
+            while (weekend.contains(day.plus(shift)))
+                shift++;
+            shifts[day.ordinal()] = shift;
+        }
+        return shifts;
+    }
+
+
+    public LocalDate calculate(Instruction instruction) {
+        return calculate(instruction.getSettlementDate(), instruction.getReceivedDate(), instruction.getCurrency());
     }
 
-    private LocalDate calculate(LocalDate settlementDate, Currency currency) {
-        if (ShiftedWeekendCurrencies.contains(currency))
-            return adjust(settlementDate, ShiftedWeekendDays);
-        else
-            return adjust(settlementDate, WeekendDays);
+    public LocalDate calculate(LocalDate settlementDate, LocalDate receivedDate, Currency currency) {
+        LocalDate date = settlementDate.isBefore(receivedDate) ? receivedDate : settlementDate;
+        return date.plusDays(getShifts(currency)[date.getDayOfWeek().ordinal()]);
     }
 
-    private LocalDate adjust(LocalDate settlementDate, List<Integer> weekends) {
-        int weekDay = settlementDate.getDayOfWeek().getValue();
-        if (weekends.contains(weekDay))
-            return settlementDate.plusDays(calculateDaysTillNextWorkDay(weekDay, weekends, 0));
-        else
-            return settlementDate;
+    public long calculate(long settlementEpochDay, long receivedEpochDay, Currency currency) {
+        long epochDay = Math.max(settlementEpochDay, receivedEpochDay);
+        return epochDay + getShifts(currency)[dayOfWeek(epochDay)];
     }
 
-    private int calculateDaysTillNextWorkDay(int weekDay, List<Integer> weekends, int offset) {
-        if (weekends.contains(weekDay))
-            return calculateDaysTillNextWorkDay(calculateNextWeekDay(weekDay), weekends, offset + 1);
-        else
-            return offset;
+    private int[] getShifts(Currency currency) {
+        int numericCode = currency.getNumericCode();
+        int[] shifts = numericCode > 0 && numericCode <= MaxNumericCode
+                ? shiftsByNumericCode[numericCode]
+                : shiftsByCurrency.get(currency);
+        return shifts != null ? shifts : defaultShifts;
     }
 
-    private int calculateNextWeekDay(int weekDay) {
-        if (weekDay == WeekLastDay)
-            return WeekFirstDay;
-        else
-            return weekDay + 1;
+    private static int dayOfWeek(long epochDay) {
+        // 1970-01-01 (epoch day 0) is Thursday, ordinal 3
+        return (int) Math.floorMod(epochDay + 3, (long) DaysInWeek);
     }
 }
@@ -8,18 +8,71 @@ import java.util.List;
 /**
  * ValueCalculator is responsible for calculation of instructions' total financial value:
  * - can be used for calculation of an individual instruction's value too
+ * - calculates values with long fixed-point arithmetic and accumulates them into a ValueSum
+ *   (falls back to BigDecimal only for values which can't be represented by longs)
  */
 
 public class ValueCalculator {
 
+    private static int DefaultFixedPointScale = 8;
+    private static int MaxLongPrecision = 18;
+
+    private int fixedPointScale;
+
+    public ValueCalculator() {
+        this(DefaultFixedPointScale);
+    }
+
+    public ValueCalculator(int fixedPointScale) {
+        this.fixedPointScale = fixedPointScale;
+    }
+
     public BigDecimal calculate(List<Instruction> instructions) {
-        return instructions.stream().map(this::calculate).reduce(BigDecimal.ZERO, BigDecimal::add);
+        ValueSum sum = newSum();
+        instructions.forEach(instruction -> calculate(instruction, sum));
+        return sum.toBigDecimal();
     }
 
-    private BigDecimal calculate(Instruction instruction) {
+    public BigDecimal calculate(Instruction instruction) {
         return calculate(instruction.getUnitPrice(), instruction.getExchangeRate(), instruction.getUnitQuantity());
     }
 
+    public int getFixedPointScale() {
+        return fixedPointScale;
+    }
+
+    public ValueSum newSum() {
+        return new ValueSum(fixedPointScale);
+    }
+
+    public void calculate(Instruction instruction, ValueSum sum) {
+        BigDecimal amount = instruction.getUnitPrice();
+        BigDecimal rate = instruction.getExchangeRate();
+        if (amount.precision() > MaxLongPrecision || rate.precision() > MaxLongPrecision)
+            sum.add(calculate(amount, rate, instruction.getUnitQuantity()));
+        else
+            calculate(amount.unscaledValue().longValue(), amount.scale(),
+                    rate.unscaledValue().longValue(), rate.scale(),
+                    instruction.getUnitQuantity(), sum);
+    }
+
+    public void calculate(long unscaledAmount, int amountScale, long unscaledRate, int rateScale, int quantity, ValueSum sum) {
+        long value;
+        try {
+            value = Math.multiplyExact(Math.multiplyExact(unscaledAmount, unscaledRate), quantity);
+        } catch (ArithmeticException e) {
+            sum.add(calculate(BigDecimal.valueOf(unscaledAmount, amountScale), BigDecimal.valueOf(unscaledRate, rateScale), quantity));
+            return;
+        }
+        int scale = amountScale + rateScale;
+        if (value == 0)
+            scale = 0;
+        else
+            for (; value % 10 == 0; value /= 10)
+                scale--;
+        sum.add(value, scale);
+    }
+
     private BigDecimal calculate(BigDecimal amount, BigDecimal rate, int quantity) {
         return amount.multiply(rate).multiply(new BigDecimal(quantity)).stripTrailingZeros();
     }
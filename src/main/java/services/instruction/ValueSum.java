@@ -0,0 +1,115 @@
+package services.instruction;
+
+import java.math.BigDecimal;
+
+/**
+ * ValueSum accumulates financial values (is a part of ValueCalculator):
+ * - keeps the sum as a long scaled to a fixed number of decimal places while it can be represented exactly
+ * - falls back to BigDecimal once a value has more decimal places or the sum overflows a long
+ * - produces the same value and scale as adding the values to BigDecimal.ZERO
+ * - can be converted to a double without creating a BigDecimal (f.e. for an estimate of a sketch, see: EntitySketch)
+ * - exposes the fixed-point sum, so it can be kept outside of a ValueSum (f.e. off-heap, see: EntityAmounts)
+ *   and added back with its scale
+ */
+
+public class ValueSum {
+
+    private static long[] PowersOfTen = powersOfTen(18);
+
+    private int fixedPointScale;
+    private long unscaledValue;
+    private BigDecimal value;
+    private int scale;
+
+    ValueSum(int fixedPointScale) {
+        this.fixedPointScale = fixedPointScale;
+    }
+
+    private static long[] powersOfTen(int max) {
+        long[] powers = new long[max + 1];
+        powers[0] = 1;
+        for (int i = 1; i <= max; i++)
+            powers[i] = powers[i - 1] * 10;
+        return powers;
+    }
+
+    public ValueSum add(long unscaledValue, int scale) {
+        this.scale = Math.max(this.scale, scale);
+        accumulate(unscaledValue, scale);
+        return this;
+    }
+
+    public ValueSum add(BigDecimal value) {
+        this.scale = Math.max(this.scale, value.scale());
+        accumulate(value);
+        return this;
+    }
+
+    public ValueSum add(ValueSum other) {
+        this.scale = Math.max(this.scale, other.scale);
+        if (other.value != null)
+            accumulate(other.value);
+        else
+            accumulate(other.unscaledValue, other.fixedPointScale);
+        return this;
+    }
+
+    public ValueSum addFixedPoint(long unscaledValue, int scale) {
+        this.scale = Math.max(this.scale, scale);
+        accumulate(unscaledValue, fixedPointScale);
+        return this;
+    }
+
+    public boolean isFixedPoint() {
+        return value == null;
+    }
+
+    public long getUnscaledValue() {
+        return unscaledValue;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public void reset() {
+        unscaledValue = 0;
+        value = null;
+        scale = 0;
+    }
+
+    public double toDouble() {
+        return value != null ? value.doubleValue() : unscaledValue / Math.pow(10, fixedPointScale);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(value, unscaledValue).setScale(scale);
+    }
+
+    private void accumulate(long unscaledValue, int scale) {
+        if (value == null) {
+            try {
+                this.unscaledValue = Math.addExact(this.unscaledValue, toFixedPoint(unscaledValue, scale));
+                return;
+            } catch (ArithmeticException e) {
+                value = BigDecimal.valueOf(this.unscaledValue, fixedPointScale);
+            }
+        }
+        value = value.add(BigDecimal.valueOf(unscaledValue, scale));
+    }
+
+    private void accumulate(BigDecimal value) {
+        this.value = toBigDecimal(this.value, this.unscaledValue).add(value);
+    }
+
+    private BigDecimal toBigDecimal(BigDecimal value, long unscaledValue) {
+        return value != null ? value : BigDecimal.valueOf(unscaledValue, fixedPointScale);
+    }
+
+    private long toFixedPoint(long unscaledValue, int scale) {
+        int shift = fixedPointScale - scale;
+        if (shift < 0 || shift >= PowersOfTen.length)
+            throw new ArithmeticException("Value can't be represented with scale " + fixedPointScale);
+        return Math.multiplyExact(unscaledValue, PowersOfTen[shift]);
+    }
+}
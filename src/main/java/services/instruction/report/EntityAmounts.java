@@ -0,0 +1,318 @@
+package services.instruction.report;
+
+import services.instruction.ValueCalculator;
+import services.instruction.ValueSum;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EntityAmounts keeps amounts of entities by their dictionary ids (is a part of ReportAggregator):
+ * - an open-addressing table in direct (off-heap) buffers: a slot holds an entity's id, the scale of its amount
+ *   and the amount as a fixed-point long (see: ValueSum), so amounts of millions of entities are no objects for a GC
+ * - slots are split into segments of 2^SegmentShift slots (16 MiB), so a table isn't limited by the size of one buffer,
+ *   a table of more than MaxCapacity / 2 entities fails with an error instead of overflowing
+ * - an amount which can't be kept as a fixed-point long any more (f.e. it overflows) is moved into a ValueSum on the heap,
+ *   its slot is only marked as overflowed
+ * - ranks amounts straight from the table, comparing fixed-point longs, entities with equal amounts are ordered by ids
+ *   (only the ranked entities get a map entry, see: MapUtils.zipWithTopRankByValue for the same ranking of a map)
+ * - can be merged with amounts of other entities
+ * - is sized by the number of entities, not by the largest id (f.e. a bucket of ReportIndex with a few entities stays small)
+ * - frees its buffers when it's released (f.e. aggregates of a discarded index), without waiting for a GC to collect them,
+ *   released amounts can't be used any more
+ */
+
+class EntityAmounts {
+
+    static int SegmentShift = 20;
+    static int MaxCapacity = 1 << 30;
+
+    private static int InitialCapacity = 64;
+    private static int SlotSize = 16;
+    private static int IdOffset = 0;
+    private static int ScaleOffset = 4;
+    private static int ValueOffset = 8;
+    private static int Empty = 0;
+    private static int Overflow = -1;
+    private static ByteBuffer[] NoSegments = new ByteBuffer[0];
+    private static Object Unsafe;
+    private static Method Cleaner = getCleaner();
+
+    private ValueCalculator valueCalculator;
+    private ByteBuffer[] segments;
+    private int segmentMask;
+    private int capacity;
+    private int size;
+    private Map<Integer, ValueSum> overflows = new HashMap<>();
+
+    EntityAmounts(ValueCalculator valueCalculator) {
+        this.valueCalculator = valueCalculator;
+        this.segments = allocate(InitialCapacity);
+    }
+
+    private ByteBuffer[] allocate(int capacity) {
+        int segmentSlots = Math.min(capacity, 1 << SegmentShift);
+        ByteBuffer[] segments = new ByteBuffer[capacity / segmentSlots];
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = ByteBuffer.allocateDirect(segmentSlots * SlotSize).order(ByteOrder.nativeOrder());
+        this.capacity = capacity;
+        this.segmentMask = segmentSlots - 1;
+        return segments;
+    }
+
+    void add(int entityId, ValueSum amount) {
+        if (amount.isFixedPoint())
+            add(entityId, amount.getUnscaledValue(), amount.getScale());
+        else
+            toOverflow(entityId, find(entityId)).add(amount);
+    }
+
+    private void add(int entityId, long unscaledValue, int scale) {
+        int slot = find(entityId);
+        int slotScale = getScale(slot);
+        if (slotScale != Overflow) {
+            long value = getValue(slot);
+            long sum = value + unscaledValue;
+            if (((value ^ sum) & (unscaledValue ^ sum)) >= 0) {
+                putValue(slot, sum);
+                putScale(slot, Math.max(slotScale, scale));
+                return;
+            }
+        }
+        toOverflow(entityId, slot).addFixedPoint(unscaledValue, scale);
+    }
+
+    private ValueSum toOverflow(int entityId, int slot) {
+        if (getScale(slot) != Overflow) {
+            overflows.put(entityId, valueCalculator.newSum().addFixedPoint(getValue(slot), getScale(slot)));
+            putScale(slot, Overflow);
+        }
+        return overflows.get(entityId);
+    }
+
+    EntityAmounts merge(EntityAmounts other) {
+        for (int slot = 0; slot < other.capacity; slot++) {
+            int key = other.getKey(slot);
+            if (key == Empty)
+                continue;
+            if (other.getScale(slot) == Overflow)
+                add(key - 1, other.overflows.get(key - 1));
+            else
+                add(key - 1, other.getValue(slot), other.getScale(slot));
+        }
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void release() {
+        free(segments);
+        segments = NoSegments;
+        overflows = new HashMap<>();
+        capacity = 0;
+        size = 0;
+    }
+
+    Map<Integer, BigDecimal> toAmounts() {
+        Map<Integer, BigDecimal> result = new HashMap<>();
+        for (int slot = 0; slot < capacity; slot++)
+            if (getKey(slot) != Empty)
+                result.put(getKey(slot) - 1, getAmount(slot).setScale(getAmountScale(slot)));
+        return result;
+    }
+
+    Map<Integer, Integer> rank(int rankLimit) {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        if (rankLimit <= 0)
+            return result;
+        int[] slots = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++)
+            if (getKey(slot) != Empty)
+                slots[count++] = slot;
+        if (count > rankLimit)
+            count = selectTop(slots, count, rankLimit);
+
+        // a heap with the last entity of the ranking on its top, taking the top to the end sorts the entities
+        for (int i = count / 2 - 1; i >= 0; i--)
+            siftDown(slots, i, count);
+        for (int end = count - 1; end > 0; end--) {
+            swap(slots, 0, end);
+            siftDown(slots, 0, end);
+        }
+
+        int rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || compareAmounts(slots[i], slots[i - 1]) < 0)
+                rank++;
+            result.put(getKey(slots[i]) - 1, rank);
+        }
+        return result;
+    }
+
+    private int selectTop(int[] slots, int count, int rankLimit) {
+        int[] heap = new int[rankLimit];
+        System.arraycopy(slots, 0, heap, 0, rankLimit);
+        for (int i = rankLimit / 2 - 1; i >= 0; i--)
+            siftDown(heap, i, rankLimit);
+        for (int i = rankLimit; i < count; i++)
+            if (compareAmounts(slots[i], heap[0]) > 0) {
+                heap[0] = slots[i];
+                siftDown(heap, 0, rankLimit);
+            }
+
+        // entities tied with the last one of the top are ranked too
+        int last = heap[0];
+        int top = 0;
+        for (int i = 0; i < count; i++)
+            if (compareAmounts(slots[i], last) >= 0)
+                slots[top++] = slots[i];
+        return top;
+    }
+
+    private void siftDown(int[] heap, int i, int count) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= count)
+                return;
+            if (child + 1 < count && compare(heap[child + 1], heap[child]) < 0)
+                child++;
+            if (compare(heap[i], heap[child]) <= 0)
+                return;
+            swap(heap, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] slots, int i, int j) {
+        int slot = slots[i];
+        slots[i] = slots[j];
+        slots[j] = slot;
+    }
+
+    private int compare(int slot, int other) {
+        int result = compareAmounts(slot, other);
+        return result != 0 ? result : Integer.compare(getKey(other), getKey(slot));
+    }
+
+    private int compareAmounts(int slot, int other) {
+        if (getScale(slot) != Overflow && getScale(other) != Overflow)
+            return Long.compare(getValue(slot), getValue(other));
+        return getAmount(slot).compareTo(getAmount(other));
+    }
+
+    private BigDecimal getAmount(int slot) {
+        if (getScale(slot) == Overflow)
+            return overflows.get(getKey(slot) - 1).toBigDecimal();
+        return BigDecimal.valueOf(getValue(slot), valueCalculator.getFixedPointScale());
+    }
+
+    private int getAmountScale(int slot) {
+        if (getScale(slot) == Overflow)
+            return overflows.get(getKey(slot) - 1).getScale();
+        return getScale(slot);
+    }
+
+    private int find(int entityId) {
+        int mask = capacity - 1;
+        for (int i = hash(entityId) & mask; ; i = (i + 1) & mask) {
+            int key = getKey(i);
+            if (key == entityId + 1)
+                return i;
+            if (key == Empty) {
+                if (2 * ((long) size + 1) > capacity) {
+                    grow();
+                    return find(entityId);
+                }
+                putKey(i, entityId + 1);
+                size++;
+                return i;
+            }
+        }
+    }
+
+    private void grow() {
+        if (capacity >= MaxCapacity)
+            throw new IllegalStateException("Amounts of more than " + MaxCapacity / 2 + " entities can't be kept");
+        ByteBuffer[] old = segments;
+        int oldCapacity = capacity;
+        int oldMask = segmentMask;
+        segments = allocate(capacity * 2);
+        int mask = capacity - 1;
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            ByteBuffer segment = old[slot >>> SegmentShift];
+            int offset = (slot & oldMask) * SlotSize;
+            int key = segment.getInt(offset + IdOffset);
+            if (key == Empty)
+                continue;
+            int i = hash(key - 1) & mask;
+            while (getKey(i) != Empty)
+                i = (i + 1) & mask;
+            putKey(i, key);
+            putScale(i, segment.getInt(offset + ScaleOffset));
+            putValue(i, segment.getLong(offset + ValueOffset));
+        }
+        free(old);
+    }
+
+    private int getKey(int slot) {
+        return segments[slot >>> SegmentShift].getInt((slot & segmentMask) * SlotSize + IdOffset);
+    }
+
+    private int getScale(int slot) {
+        return segments[slot >>> SegmentShift].getInt((slot & segmentMask) * SlotSize + ScaleOffset);
+    }
+
+    private long getValue(int slot) {
+        return segments[slot >>> SegmentShift].getLong((slot & segmentMask) * SlotSize + ValueOffset);
+    }
+
+    private void putKey(int slot, int key) {
+        segments[slot >>> SegmentShift].putInt((slot & segmentMask) * SlotSize + IdOffset, key);
+    }
+
+    private void putScale(int slot, int scale) {
+        segments[slot >>> SegmentShift].putInt((slot & segmentMask) * SlotSize + ScaleOffset, scale);
+    }
+
+    private void putValue(int slot, long value) {
+        segments[slot >>> SegmentShift].putLong((slot & segmentMask) * SlotSize + ValueOffset, value);
+    }
+
+    private static int hash(int entityId) {
+        int h = entityId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // frees direct buffers now by sun.misc.Unsafe.invokeCleaner (Java 9+), otherwise they are freed when they are collected
+    private static void free(ByteBuffer[] buffers) {
+        if (Cleaner == null)
+            return;
+        try {
+            for (ByteBuffer buffer : buffers)
+                Cleaner.invoke(Unsafe, buffer);
+        } catch (ReflectiveOperationException e) {
+            Cleaner = null;
+        }
+    }
+
+    private static Method getCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Unsafe = field.get(null);
+            return unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import services.instruction.ValueCalculator;
+import services.instruction.ValueSum;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EntityCandidates sums amounts of the candidate top entities of a sketch exactly (is a part of EntitySketch):
+ * - is filled by a second pass over the same instructions, amounts of other entities are skipped
+ * - keeps the candidates' keys sorted, so it takes a fixed amount of memory and a key is found by a binary search
+ * - keeps the name of a candidate when it's met, so only names of candidates are encoded by the entities dictionary
+ * - confirms a candidate only if its exact amount is above the sketch's threshold, so confirmed entities
+ *   are exactly the entities of the full ranking with amounts above the threshold (all of them if no entity was dropped)
+ * - copies share the candidates, so a copy can be filled on another thread and merged
+ */
+
+class EntityCandidates {
+
+    private long[] keys;
+    private double threshold;
+    private boolean truncated;
+    private String[] names;
+    private ValueSum[] amounts;
+
+    EntityCandidates(long[] keys, double threshold, boolean truncated) {
+        this.keys = keys;
+        this.threshold = threshold;
+        this.truncated = truncated;
+        this.names = new String[keys.length];
+        this.amounts = new ValueSum[keys.length];
+    }
+
+    EntityCandidates copy() {
+        return new EntityCandidates(keys, threshold, truncated);
+    }
+
+    void add(String entity, ValueSum amount, ValueCalculator valueCalculator) {
+        add(Arrays.binarySearch(keys, EntitySketch.hash(entity)), entity, amount, valueCalculator);
+    }
+
+    private void add(int index, String entity, ValueSum amount, ValueCalculator valueCalculator) {
+        if (index < 0)
+            return;
+        if (amounts[index] == null) {
+            names[index] = entity;
+            amounts[index] = valueCalculator.newSum();
+        }
+        amounts[index].add(amount);
+    }
+
+    EntityCandidates merge(EntityCandidates other, ValueCalculator valueCalculator) {
+        for (int index = 0; index < keys.length; index++)
+            if (other.amounts[index] != null)
+                add(index, other.names[index], other.amounts[index], valueCalculator);
+        return this;
+    }
+
+    Map<Integer, BigDecimal> toAmounts(Dictionary<String> entities) {
+        BigDecimal limit = new BigDecimal(threshold);
+        Map<Integer, BigDecimal> result = new HashMap<>();
+        for (int index = 0; index < keys.length; index++) {
+            if (amounts[index] == null)
+                continue;
+            BigDecimal amount = amounts[index].toBigDecimal();
+            if (!truncated || amount.compareTo(limit) > 0)
+                result.put(entities.encode(names[index]), amount);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package services.instruction.report;
+
+import models.Instruction;
+import models.InstructionType;
+import services.instruction.ValueCalculator;
+import services.instruction.ValueSum;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * EntityConfirmation is the second pass of approximate ranking (is a part of EntitySketch):
+ * - sums amounts of the candidate entities of every type exactly (see: EntityCandidates)
+ * - finds candidates by hashes of entity names, so instructions don't need entity ids (see: InstructionDAO.withoutEntityIds)
+ * - can be collected from a stream of instructions in parallel like ReportAggregator
+ */
+
+class EntityConfirmation {
+
+    private ValueCalculator valueCalculator;
+    private Map<InstructionType, EntityCandidates> candidatesByType = new EnumMap<>(InstructionType.class);
+    private ValueSum amount;
+
+    EntityConfirmation(Map<InstructionType, EntityCandidates> candidatesByType, ValueCalculator valueCalculator) {
+        candidatesByType.forEach((instructionType, candidates) -> this.candidatesByType.put(instructionType, candidates.copy()));
+        this.valueCalculator = valueCalculator;
+        this.amount = valueCalculator.newSum();
+    }
+
+    static Collector<Instruction, ?, Map<InstructionType, EntityCandidates>> collector(Map<InstructionType, EntityCandidates> candidatesByType,
+                                                                                       ValueCalculator valueCalculator) {
+        return Collector.of(
+                () -> new EntityConfirmation(candidatesByType, valueCalculator),
+                EntityConfirmation::add,
+                EntityConfirmation::merge,
+                confirmation -> confirmation.candidatesByType
+        );
+    }
+
+    void add(Instruction instruction) {
+        EntityCandidates candidates = candidatesByType.get(instruction.getInstructionType());
+        if (candidates == null)
+            return;
+        amount.reset();
+        valueCalculator.calculate(instruction, amount);
+        candidates.add(instruction.getEntity(), amount, valueCalculator);
+    }
+
+    EntityConfirmation merge(EntityConfirmation other) {
+        other.candidatesByType.forEach((instructionType, candidates) ->
+                candidatesByType.get(instructionType).merge(candidates, valueCalculator));
+        return this;
+    }
+}
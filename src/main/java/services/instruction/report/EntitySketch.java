@@ -0,0 +1,236 @@
+package services.instruction.report;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EntitySketch estimates amounts of the top entities in a fixed amount of memory (is a part of ReportAggregator):
+ * - a weighted Space-Saving sketch: keeps at most "capacity" counters of entities, an entity without a counter
+ *   takes the counter of the entity with the smallest amount and adds its amount to it
+ * - a counter never underestimates the amount of its entity and overestimates it by its error at most,
+ *   an error of a counter (and so an amount of any entity without a counter) is at most the total amount / capacity
+ * - so every entity with an amount above the threshold (the largest amount an entity without a counter can have)
+ *   has a counter, and the top entities can be confirmed by summing amounts of the candidates exactly (see: EntityCandidates)
+ * - counters are rounded up, so floating point rounding never makes them smaller than exact amounts
+ * - amounts have to be non-negative (values of instructions are)
+ * - counts entities by 64-bit hashes of their names (see: hash), so entities don't have to be encoded by a dictionary
+ *   and the memory of the sketch doesn't grow with the number of entities (entities of equal hashes would share a counter)
+ * - takes about 44 bytes per counter: counters are kept in a min-heap and found by an open-addressing table of keys
+ * - can be merged with another sketch (f.e. partial sketches of a parallel read), the merged sketch keeps the same guarantees
+ */
+
+class EntitySketch {
+
+    private int capacity;
+    private int size;
+    private long[] keys;
+    private double[] counts;
+    private double[] errors;
+    private int[] table;
+    private int mask;
+
+    private double threshold;
+    private boolean truncated;
+
+    EntitySketch(int capacity) {
+        this.capacity = capacity;
+        this.keys = new long[capacity];
+        this.counts = new double[capacity];
+        this.errors = new double[capacity];
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    void add(long key, double amount) {
+        double weight = Math.nextUp(Math.nextUp(amount));
+        int slot = find(key);
+        if (slot >= 0) {
+            counts[slot] = Math.nextUp(counts[slot] + weight);
+            siftDown(slot);
+            return;
+        }
+        if (size == capacity) {
+            threshold = Math.max(threshold, counts[0]);
+            truncated = true;
+            remove(keys[0]);
+            slot = 0;
+        } else
+            slot = size++;
+        keys[slot] = key;
+        counts[slot] = Math.nextUp(threshold + weight);
+        errors[slot] = threshold;
+        insert(key, slot);
+        if (slot == 0)
+            siftDown(slot);
+        else
+            siftUp(slot);
+    }
+
+    EntitySketch merge(EntitySketch other) {
+        long[] unionKeys = Arrays.copyOf(keys, size + other.size);
+        double[] unionCounts = new double[unionKeys.length];
+        double[] unionErrors = new double[unionKeys.length];
+        int union = 0;
+        for (int slot = 0; slot < size; slot++) {
+            int otherSlot = other.find(keys[slot]);
+            unionKeys[union] = keys[slot];
+            unionCounts[union] = Math.nextUp(counts[slot] + (otherSlot >= 0 ? other.counts[otherSlot] : other.threshold));
+            unionErrors[union++] = errors[slot] + (otherSlot >= 0 ? other.errors[otherSlot] : other.threshold);
+        }
+        for (int otherSlot = 0; otherSlot < other.size; otherSlot++)
+            if (find(other.keys[otherSlot]) < 0) {
+                unionKeys[union] = other.keys[otherSlot];
+                unionCounts[union] = Math.nextUp(other.counts[otherSlot] + threshold);
+                unionErrors[union++] = other.errors[otherSlot] + threshold;
+            }
+
+        Integer[] order = new Integer[union];
+        for (int i = 0; i < union; i++)
+            order[i] = i;
+        Arrays.sort(order, (i1, i2) -> Double.compare(unionCounts[i2], unionCounts[i1]));
+
+        double mergedThreshold = Math.nextUp(threshold + other.threshold);
+        truncated |= other.truncated || union > capacity;
+        Arrays.fill(table, 0);
+        size = 0;
+        for (int i = 0; i < union; i++) {
+            if (i >= capacity) {
+                mergedThreshold = Math.max(mergedThreshold, unionCounts[order[i]]);
+                continue;
+            }
+            keys[size] = unionKeys[order[i]];
+            counts[size] = unionCounts[order[i]];
+            errors[size] = unionErrors[order[i]];
+            insert(keys[size], size);
+            siftUp(size++);
+        }
+        threshold = mergedThreshold;
+        return this;
+    }
+
+    double getThreshold() {
+        return threshold;
+    }
+
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getEstimate(long key) {
+        int slot = find(key);
+        return slot >= 0 ? counts[slot] : threshold;
+    }
+
+    double getError(long key) {
+        int slot = find(key);
+        return slot >= 0 ? errors[slot] : threshold;
+    }
+
+    Map<Long, BigDecimal> toEstimates() {
+        Map<Long, BigDecimal> result = new HashMap<>();
+        for (int slot = 0; slot < size; slot++)
+            result.put(keys[slot], BigDecimal.valueOf(counts[slot]));
+        return result;
+    }
+
+    EntityCandidates getCandidates() {
+        long[] candidates = Arrays.copyOf(keys, size);
+        Arrays.sort(candidates);
+        return new EntityCandidates(candidates, threshold, truncated);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (counts[parent] <= counts[slot])
+                return;
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int child = 2 * slot + 1;
+            if (child >= size)
+                return;
+            if (child + 1 < size && counts[child + 1] < counts[child])
+                child++;
+            if (counts[slot] <= counts[child])
+                return;
+            swap(slot, child);
+            slot = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int positionOfI = position(keys[i]);
+        int positionOfJ = position(keys[j]);
+        table[positionOfI] = j + 1;
+        table[positionOfJ] = i + 1;
+        long key = keys[i];
+        double count = counts[i];
+        double error = errors[i];
+        keys[i] = keys[j];
+        counts[i] = counts[j];
+        errors[i] = errors[j];
+        keys[j] = key;
+        counts[j] = count;
+        errors[j] = error;
+    }
+
+    private int find(long key) {
+        for (int i = hash(key) & mask; table[i] != 0; i = (i + 1) & mask)
+            if (keys[table[i] - 1] == key)
+                return table[i] - 1;
+        return -1;
+    }
+
+    private int position(long key) {
+        int i = hash(key) & mask;
+        while (keys[table[i] - 1] != key)
+            i = (i + 1) & mask;
+        return i;
+    }
+
+    private void insert(long key, int slot) {
+        int i = hash(key) & mask;
+        while (table[i] != 0)
+            i = (i + 1) & mask;
+        table[i] = slot + 1;
+    }
+
+    private void remove(long key) {
+        int i = position(key);
+        table[i] = 0;
+        // shifts back the following entries of the cluster, so lookups don't stop at the removed one
+        for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+            int home = hash(keys[table[j] - 1]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                table[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    // FNV-1a over the chars of a name
+    static long hash(String entity) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < entity.length(); i++)
+            h = (h ^ entity.charAt(i)) * 0x100000001B3L;
+        return h;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
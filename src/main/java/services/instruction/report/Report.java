@@ -0,0 +1,69 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import models.InstructionType;
+import utils.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+
+import static utils.data.MapUtils.descSort;
+
+/**
+ * Report is a part of report service package:
+ * - keeps the calculated data of a report (amounts by settlement date and type, ranks of entities by type)
+ *   separately from printing, so it can be printed any number of times (f.e. from ReportCache)
+ * - keeps amounts sorted by settlement dates (the latest first), so a cached report isn't sorted again
+ * - writes itself to a sink row by row, entity names are resolved by their ids only when they are written
+ * - is immutable
+ */
+
+class Report {
+
+    private Map<LocalDate, Map<InstructionType, BigDecimal>> amountByDateAndType;
+    private Map<InstructionType, Map<Integer, Integer>> amountRankByTypeAndEntity;
+    private Dictionary<String> entities;
+
+    Report(ReportAggregator aggregator, int rankLimit) {
+        this.amountByDateAndType = Collections.unmodifiableMap(descSort(aggregator.getAmountByDateAndType(), Map.Entry.comparingByKey()));
+        long start = PipelineMetrics.Rank.start();
+        this.amountRankByTypeAndEntity = Collections.unmodifiableMap(aggregator.getAmountRankByTypeAndEntity(rankLimit));
+        PipelineMetrics.Rank.end(start, amountRankByTypeAndEntity.values().stream().mapToLong(Map::size).sum());
+        this.entities = aggregator.getEntities();
+    }
+
+    void writeTo(ReportSink sink) throws IOException {
+        long start = PipelineMetrics.Print.start();
+        long rows = amountByDateAndType.size();
+        sink.startAmounts();
+        for (Map.Entry<LocalDate, Map<InstructionType, BigDecimal>> amounts : amountByDateAndType.entrySet())
+            sink.writeAmounts(amounts.getKey(), amounts.getValue());
+        sink.endAmounts();
+
+        for (Map.Entry<InstructionType, Map<Integer, Integer>> ranks : amountRankByTypeAndEntity.entrySet()) {
+            InstructionType instructionType = ranks.getKey();
+            sink.startRanks(instructionType);
+            rows += ranks.getValue().size();
+            for (Map.Entry<Integer, Integer> rank : ranks.getValue().entrySet())
+                sink.writeRank(instructionType, entities.decode(rank.getKey()), rank.getValue());
+            sink.endRanks(instructionType);
+        }
+        sink.flush();
+        PipelineMetrics.Print.end(start, rows);
+    }
+
+    Map<LocalDate, Map<InstructionType, BigDecimal>> getAmountByDateAndType() {
+        return amountByDateAndType;
+    }
+
+    Map<InstructionType, Map<Integer, Integer>> getAmountRankByTypeAndEntity() {
+        return amountRankByTypeAndEntity;
+    }
+
+    Dictionary<String> getEntities() {
+        return entities;
+    }
+}
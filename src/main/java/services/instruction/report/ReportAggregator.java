@@ -0,0 +1,244 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import models.InstructionType;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+import utils.metrics.PipelineMetrics;
+import services.instruction.ValueSum;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import static java.util.stream.Collectors.toMap;
+import static utils.data.MapUtils.zipWithTopRankByValue;
+
+/**
+ * ReportAggregator is a part of report service package:
+ * - folds every instruction straight into the report's accumulators
+ *   (amounts by settlement date and type, amounts by type and entity)
+ * - calculates an instruction's settlement date and value once for all the accumulators
+ * - keeps one accumulator per group, so its size doesn't depend on the number of instructions
+ * - can be merged with another aggregator (f.e. partial aggregates of a parallel read or buckets of ReportIndex),
+ *   a merge copies the other aggregator's amounts, so the other aggregator can be merged again
+ *   (a combine releases the other aggregator after a merge, f.e. a partial aggregate of a parallel read)
+ * - frees the off-heap tables of its entities when it's released or reset (see: EntityAmounts),
+ *   an aggregator is released as soon as a report is calculated from it
+ * - can be kept running, folding in instructions as they arrive (f.e. appended to a followed CSV file)
+ * - can aggregate instructions of an InstructionStore directly, reading its columns without creating instructions
+ * - can rank only the top entities of every type
+ * - groups and ranks entities by their dictionary ids in off-heap tables (see: EntityAmounts), names are resolved by a printer
+ * - with a sketch capacity keeps a fixed number of entity counters per type instead of amounts of all entities
+ *   (see: EntitySketch), entities are counted by hashes of their names without encoding them by the dictionary,
+ *   only the candidates confirmed by a second pass (see: EntityConfirmation) are encoded and ranked
+ */
+
+class ReportAggregator {
+
+    private SettlementDateCalculator settlementDateCalculator;
+    private ValueCalculator valueCalculator;
+    private Dictionary<String> entities;
+
+    private Map<LocalDate, Map<InstructionType, ValueSum>> amountByDateAndType = new HashMap<>();
+    private Map<InstructionType, EntityAmounts> amountByTypeAndEntity = new EnumMap<>(InstructionType.class);
+    private int sketchCapacity;
+    private Map<InstructionType, EntitySketch> sketchByType = new EnumMap<>(InstructionType.class);
+    private Map<InstructionType, EntityCandidates> confirmedByType;
+
+    private ValueSum amount;
+
+    ReportAggregator(SettlementDateCalculator settlementDateCalculator,
+                     ValueCalculator valueCalculator,
+                     Dictionary<String> entities) {
+        this(settlementDateCalculator, valueCalculator, entities, ReportService.NoSketch);
+    }
+
+    ReportAggregator(SettlementDateCalculator settlementDateCalculator,
+                     ValueCalculator valueCalculator,
+                     Dictionary<String> entities,
+                     int sketchCapacity) {
+        this.settlementDateCalculator = settlementDateCalculator;
+        this.valueCalculator = valueCalculator;
+        this.entities = entities;
+        this.sketchCapacity = sketchCapacity;
+        this.amount = valueCalculator.newSum();
+    }
+
+    static Collector<Instruction, ?, ReportAggregator> collector(SettlementDateCalculator settlementDateCalculator,
+                                                                 ValueCalculator valueCalculator,
+                                                                 Dictionary<String> entities) {
+        return collector(settlementDateCalculator, valueCalculator, entities, ReportService.NoSketch);
+    }
+
+    static Collector<Instruction, ?, ReportAggregator> collector(SettlementDateCalculator settlementDateCalculator,
+                                                                 ValueCalculator valueCalculator,
+                                                                 Dictionary<String> entities,
+                                                                 int sketchCapacity) {
+        return Collector.of(
+                () -> new ReportAggregator(settlementDateCalculator, valueCalculator, entities, sketchCapacity),
+                ReportAggregator::add,
+                ReportAggregator::combine
+        );
+    }
+
+    static ReportAggregator aggregate(InstructionStore instructions, LocalDate start, LocalDate end,
+                                      SettlementDateCalculator settlementDateCalculator,
+                                      ValueCalculator valueCalculator) {
+        ReportAggregator aggregator = new ReportAggregator(settlementDateCalculator, valueCalculator, instructions.getEntities());
+        instructions.forEachByReceivedDate(start, end, row -> aggregator.add(instructions, row));
+        return aggregator;
+    }
+
+    void add(Instruction instruction) {
+        long start = PipelineMetrics.Aggregate.startSample();
+        amount.reset();
+        valueCalculator.calculate(instruction, amount);
+        long settlementStart = PipelineMetrics.SettlementDate.startSample();
+        LocalDate settlementDate = settlementDateCalculator.calculate(instruction);
+        PipelineMetrics.SettlementDate.endSample(settlementStart);
+        add(settlementDate, instruction.getInstructionType());
+        if (isSketched())
+            addToSketch(instruction.getInstructionType(), EntitySketch.hash(instruction.getEntity()));
+        else
+            addToEntity(instruction.getInstructionType(), getEntityId(instruction));
+        PipelineMetrics.Aggregate.endSample(start);
+    }
+
+    void add(InstructionStore instructions, int row) {
+        long start = PipelineMetrics.Aggregate.startSample();
+        amount.reset();
+        if (instructions.isFixedPoint(row))
+            valueCalculator.calculate(
+                    instructions.getUnscaledUnitPrice(row), instructions.getUnitPriceScale(row),
+                    instructions.getUnscaledExchangeRate(row), instructions.getExchangeRateScale(row),
+                    instructions.getUnitQuantity(row), amount);
+        else
+            valueCalculator.calculate(instructions.get(row), amount);
+        long settlementStart = PipelineMetrics.SettlementDate.startSample();
+        long settlementDate = settlementDateCalculator.calculate(
+                instructions.getSettlementEpochDay(row), instructions.getReceivedEpochDay(row), instructions.getCurrency(row));
+        PipelineMetrics.SettlementDate.endSample(settlementStart);
+        add(LocalDate.ofEpochDay(settlementDate), instructions.getInstructionType(row));
+        if (isSketched())
+            addToSketch(instructions.getInstructionType(row), EntitySketch.hash(instructions.getEntity(row)));
+        else
+            addToEntity(instructions.getInstructionType(row), instructions.getEntityId(row));
+        PipelineMetrics.Aggregate.endSample(start);
+    }
+
+    private void add(LocalDate settlementDate, InstructionType instructionType) {
+        amountByDateAndType
+                .computeIfAbsent(settlementDate, d -> new EnumMap<>(InstructionType.class))
+                .computeIfAbsent(instructionType, t -> valueCalculator.newSum())
+                .add(amount);
+    }
+
+    private void addToSketch(InstructionType instructionType, long entityKey) {
+        sketchByType
+                .computeIfAbsent(instructionType, t -> new EntitySketch(sketchCapacity))
+                .add(entityKey, amount.toDouble());
+    }
+
+    private void addToEntity(InstructionType instructionType, int entityId) {
+        amountByTypeAndEntity
+                .computeIfAbsent(instructionType, t -> new EntityAmounts(valueCalculator))
+                .add(entityId, amount);
+    }
+
+    private int getEntityId(Instruction instruction) {
+        return instruction.getEntityId() != Instruction.NoEntityId
+                ? instruction.getEntityId()
+                : entities.encode(instruction.getEntity());
+    }
+
+    ReportAggregator merge(ReportAggregator other) {
+        other.amountByDateAndType.forEach((date, amounts) -> amounts.forEach((instructionType, amount) -> amountByDateAndType
+                .computeIfAbsent(date, d -> new EnumMap<>(InstructionType.class))
+                .computeIfAbsent(instructionType, t -> valueCalculator.newSum())
+                .add(amount)));
+        other.amountByTypeAndEntity.forEach((instructionType, amounts) -> amountByTypeAndEntity
+                .computeIfAbsent(instructionType, t -> new EntityAmounts(valueCalculator))
+                .merge(amounts));
+        other.sketchByType.forEach((instructionType, sketch) -> sketchByType
+                .computeIfAbsent(instructionType, t -> new EntitySketch(sketchCapacity))
+                .merge(sketch));
+        return this;
+    }
+
+    ReportAggregator combine(ReportAggregator other) {
+        merge(other);
+        other.release();
+        return this;
+    }
+
+    void release() {
+        amountByTypeAndEntity.values().forEach(EntityAmounts::release);
+        amountByTypeAndEntity.clear();
+    }
+
+    void reset() {
+        release();
+        amountByDateAndType.clear();
+        sketchByType.clear();
+        confirmedByType = null;
+    }
+
+    boolean isSketched() {
+        return sketchCapacity != ReportService.NoSketch;
+    }
+
+    Map<InstructionType, EntityCandidates> getCandidates() {
+        Map<InstructionType, EntityCandidates> result = new EnumMap<>(InstructionType.class);
+        sketchByType.forEach((instructionType, sketch) -> result.put(instructionType, sketch.getCandidates()));
+        return result;
+    }
+
+    void confirm(Map<InstructionType, EntityCandidates> confirmedByType) {
+        this.confirmedByType = confirmedByType;
+    }
+
+    Dictionary<String> getEntities() {
+        return entities;
+    }
+
+    Map<LocalDate, Map<InstructionType, BigDecimal>> getAmountByDateAndType() {
+        return amountByDateAndType.entrySet().stream().collect(toMap(
+                Map.Entry::getKey,
+                entry -> toAmounts(entry.getValue(), () -> new EnumMap<>(InstructionType.class))));
+    }
+
+    Map<InstructionType, Map<Integer, Integer>> getAmountRankByTypeAndEntity() {
+        return getAmountRankByTypeAndEntity(ReportService.NoRankLimit);
+    }
+
+    Map<InstructionType, Map<Integer, Integer>> getAmountRankByTypeAndEntity(int rankLimit) {
+        if (isSketched())
+            return sketchByType.keySet().stream().collect(toMap(
+                    instructionType -> instructionType,
+                    instructionType -> confirmedByType != null
+                            ? zipWithTopRankByValue(confirmedByType.get(instructionType).toAmounts(entities), rankLimit)
+                            : new HashMap<Integer, Integer>(),
+                    (r1, r2) -> r1,
+                    () -> new EnumMap<>(InstructionType.class)));
+        return amountByTypeAndEntity.entrySet().stream().collect(toMap(
+                Map.Entry::getKey,
+                entry -> entry.getValue().rank(rankLimit),
+                (r1, r2) -> r1,
+                () -> new EnumMap<>(InstructionType.class)));
+    }
+
+    private static <K> Map<K, BigDecimal> toAmounts(Map<K, ValueSum> sums, Supplier<Map<K, BigDecimal>> mapSupplier) {
+        return sums.entrySet().stream().collect(toMap(
+                Map.Entry::getKey,
+                entry -> entry.getValue().toBigDecimal(),
+                (a1, a2) -> a1,
+                mapSupplier));
+    }
+}
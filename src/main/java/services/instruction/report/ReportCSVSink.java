@@ -0,0 +1,87 @@
+package services.instruction.report;
+
+import models.InstructionType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ReportCSVSink writes a report as CSV tables (amounts and then ranks of every type, separated by empty lines):
+ * - dates are written in ISO format and amounts in plain notation, so they can be read back by other tools
+ * - quotes values which contain separators, quotes or new lines (f.e. entity names)
+ */
+
+public class ReportCSVSink implements ReportSink {
+
+    private Writer writer;
+
+    public ReportCSVSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void startAmounts() throws IOException {
+        writer.write("Settlement Date");
+        for (InstructionType instructionType : InstructionType.values()) {
+            writer.write(',');
+            writeValue("Amount (" + instructionType.getName() + ")");
+        }
+        writer.write('\n');
+    }
+
+    public void writeAmounts(LocalDate settlementDate, Map<InstructionType, BigDecimal> amounts) throws IOException {
+        writer.write(settlementDate.toString());
+        for (InstructionType instructionType : InstructionType.values()) {
+            writer.write(',');
+            writer.write(amounts.getOrDefault(instructionType, BigDecimal.ZERO).toPlainString());
+        }
+        writer.write('\n');
+    }
+
+    public void endAmounts() throws IOException {
+        writer.write('\n');
+    }
+
+    public void startRanks(InstructionType instructionType) throws IOException {
+        writer.write("Entity,");
+        writeValue("Rank (" + instructionType.getName() + ")");
+        writer.write('\n');
+    }
+
+    public void writeRank(InstructionType instructionType, String entity, int rank) throws IOException {
+        writeValue(entity);
+        writer.write(',');
+        writer.write(Integer.toString(rank));
+        writer.write('\n');
+    }
+
+    public void endRanks(InstructionType instructionType) throws IOException {
+        writer.write('\n');
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeValue(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
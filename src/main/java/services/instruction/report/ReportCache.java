@@ -0,0 +1,114 @@
+package services.instruction.report;
+
+import utils.FileVersion;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * ReportCache keeps reports calculated by ReportService:
+ * - a report is keyed by its date range and the version of the data source it was calculated from (see: FileVersion)
+ * - evicts the least recently used report once it holds more than the configured number of reports
+ * - drops all the reports of an older version as soon as a report of a new version is requested,
+ *   so a changed file never serves a stale report
+ * - counts hits and misses
+ * - can be shared between threads (a report is calculated outside of the lock, a concurrent miss may calculate it twice)
+ */
+
+public class ReportCache {
+
+    public static int DefaultMaxSize = 16;
+
+    private int maxSize;
+    private Map<Key, Report> reports;
+    private FileVersion version;
+
+    private long hits;
+    private long misses;
+
+    public ReportCache() {
+        this(DefaultMaxSize);
+    }
+
+    public ReportCache(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Max size of a report cache can't be negative: " + maxSize);
+        this.maxSize = maxSize;
+        this.reports = new LinkedHashMap<Key, Report>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Report> eldest) {
+                return size() > ReportCache.this.maxSize;
+            }
+        };
+    }
+
+    Report get(LocalDate start, LocalDate end, FileVersion version, Supplier<Report> calculator) {
+        Key key = new Key(start, end, version);
+        synchronized (this) {
+            if (!version.equals(this.version)) {
+                reports.clear();
+                this.version = version;
+            }
+            Report report = reports.get(key);
+            if (report != null) {
+                hits++;
+                return report;
+            }
+            misses++;
+        }
+        Report report = calculator.get();
+        synchronized (this) {
+            if (version.equals(this.version))
+                reports.put(key, report);
+        }
+        return report;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return reports.size();
+    }
+
+    public synchronized void clear() {
+        reports.clear();
+        version = null;
+    }
+
+
+    private static class Key {
+        private LocalDate start;
+        private LocalDate end;
+        private FileVersion version;
+
+        Key(LocalDate start, LocalDate end, FileVersion version) {
+            this.start = start;
+            this.end = end;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Key key = (Key) o;
+            return start.equals(key.start) && end.equals(key.end) && version.equals(key.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, version);
+        }
+    }
+}
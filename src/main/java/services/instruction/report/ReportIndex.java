@@ -0,0 +1,94 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+
+import java.time.LocalDate;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+/**
+ * ReportIndex keeps partial aggregates of a report by received dates of instructions (is a part of report service package):
+ * - is built once per load: a bucket of every received date holds amounts by settlement date, type and entity
+ * - a report of any date range is calculated by merging the buckets of the range without reading any instruction,
+ *   so its cost depends on the number of days (and groups within them), not on the number of instructions
+ * - doesn't keep prefix sums: a sum keeps the scale of its most precise term, which can't be taken back by a subtraction,
+ *   so a difference of two prefix sums could differ from a sum of the range
+ * - frees the off-heap tables of its buckets when it's released (f.e. when a reloaded index replaces it),
+ *   a released index can't be used any more
+ */
+
+public class ReportIndex {
+
+    private SettlementDateCalculator settlementDateCalculator;
+    private ValueCalculator valueCalculator;
+    private Dictionary<String> entities;
+
+    private TreeMap<LocalDate, ReportAggregator> buckets = new TreeMap<>();
+
+    ReportIndex(SettlementDateCalculator settlementDateCalculator,
+                ValueCalculator valueCalculator,
+                Dictionary<String> entities) {
+        this.settlementDateCalculator = settlementDateCalculator;
+        this.valueCalculator = valueCalculator;
+        this.entities = entities;
+    }
+
+    static Collector<Instruction, ?, ReportIndex> collector(SettlementDateCalculator settlementDateCalculator,
+                                                            ValueCalculator valueCalculator,
+                                                            Dictionary<String> entities) {
+        return Collector.of(
+                () -> new ReportIndex(settlementDateCalculator, valueCalculator, entities),
+                ReportIndex::add,
+                ReportIndex::merge
+        );
+    }
+
+    static ReportIndex build(InstructionStore instructions,
+                             SettlementDateCalculator settlementDateCalculator,
+                             ValueCalculator valueCalculator) {
+        ReportIndex index = new ReportIndex(settlementDateCalculator, valueCalculator, instructions.getEntities());
+        ReportAggregator bucket = null;
+        int receivedDate = 0;
+        for (int row = 0; row < instructions.size(); row++) {
+            if (bucket == null || instructions.getReceivedEpochDay(row) != receivedDate) {
+                receivedDate = instructions.getReceivedEpochDay(row);
+                bucket = index.getBucket(LocalDate.ofEpochDay(receivedDate));
+            }
+            bucket.add(instructions, row);
+        }
+        return index;
+    }
+
+    void add(Instruction instruction) {
+        getBucket(instruction.getReceivedDate()).add(instruction);
+    }
+
+    ReportIndex merge(ReportIndex other) {
+        other.buckets.forEach((date, bucket) -> buckets.merge(date, bucket, ReportAggregator::combine));
+        return this;
+    }
+
+    ReportAggregator aggregate(LocalDate start, LocalDate end) {
+        ReportAggregator aggregator = new ReportAggregator(settlementDateCalculator, valueCalculator, entities);
+        if (!start.isAfter(end))
+            buckets.subMap(start, true, end, true).values().forEach(aggregator::merge);
+        return aggregator;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public void release() {
+        buckets.values().forEach(ReportAggregator::release);
+        buckets.clear();
+    }
+
+    private ReportAggregator getBucket(LocalDate receivedDate) {
+        return buckets.computeIfAbsent(receivedDate, d -> new ReportAggregator(settlementDateCalculator, valueCalculator, entities));
+    }
+}
@@ -0,0 +1,83 @@
+package services.instruction.report;
+
+import models.InstructionType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ReportJsonLinesSink writes a report as JSON lines (a JSON object per row):
+ * - {"record":"amounts","settlementDate":"2016-01-05","amounts":{"B":100.25,"S":0}}
+ * - {"record":"rank","instructionType":"B","entity":"foo","rank":1}
+ * - dates are written in ISO format and amounts as plain JSON numbers
+ */
+
+public class ReportJsonLinesSink implements ReportSink {
+
+    private Writer writer;
+
+    public ReportJsonLinesSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void startAmounts() {
+    }
+
+    public void writeAmounts(LocalDate settlementDate, Map<InstructionType, BigDecimal> amounts) throws IOException {
+        writer.write("{\"record\":\"amounts\",\"settlementDate\":\"");
+        writer.write(settlementDate.toString());
+        writer.write("\",\"amounts\":{");
+        InstructionType[] instructionTypes = InstructionType.values();
+        for (int i = 0; i < instructionTypes.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            writeString(writer, instructionTypes[i].getName());
+            writer.write(':');
+            writer.write(amounts.getOrDefault(instructionTypes[i], BigDecimal.ZERO).toPlainString());
+        }
+        writer.write("}}\n");
+    }
+
+    public void endAmounts() {
+    }
+
+    public void startRanks(InstructionType instructionType) {
+    }
+
+    public void writeRank(InstructionType instructionType, String entity, int rank) throws IOException {
+        writer.write("{\"record\":\"rank\",\"instructionType\":");
+        writeString(writer, instructionType.getName());
+        writer.write(",\"entity\":");
+        writeString(writer, entity);
+        writer.write(",\"rank\":");
+        writer.write(Integer.toString(rank));
+        writer.write("}\n");
+    }
+
+    public void endRanks(InstructionType instructionType) {
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write("\\u00");
+                writer.write(Character.forDigit(c >> 4, 16));
+                writer.write(Character.forDigit(c & 0xF, 16));
+            } else
+                writer.write(c);
+        }
+        writer.write('"');
+    }
+}
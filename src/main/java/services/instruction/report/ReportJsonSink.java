@@ -0,0 +1,86 @@
+package services.instruction.report;
+
+import models.InstructionType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ReportJsonSink writes a report as a single JSON document:
+ * - {"amounts":[{"settlementDate":"2016-01-05","amounts":{"B":100.25,"S":0}}],"ranks":{"B":[{"entity":"foo","rank":1}]}}
+ * - dates are written in ISO format and amounts as plain JSON numbers (the same as ReportJsonLinesSink)
+ * - the document is closed when the report is flushed, so a sink writes one document per report
+ */
+
+public class ReportJsonSink implements ReportSink {
+
+    private Writer writer;
+    private boolean first;
+    private boolean firstRanks;
+
+    public ReportJsonSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void startAmounts() throws IOException {
+        writer.write("{\"amounts\":[");
+        first = true;
+        firstRanks = true;
+    }
+
+    public void writeAmounts(LocalDate settlementDate, Map<InstructionType, BigDecimal> amounts) throws IOException {
+        writeSeparator();
+        writer.write("{\"settlementDate\":\"");
+        writer.write(settlementDate.toString());
+        writer.write("\",\"amounts\":{");
+        InstructionType[] instructionTypes = InstructionType.values();
+        for (int i = 0; i < instructionTypes.length; i++) {
+            if (i > 0)
+                writer.write(',');
+            ReportJsonLinesSink.writeString(writer, instructionTypes[i].getName());
+            writer.write(':');
+            writer.write(amounts.getOrDefault(instructionTypes[i], BigDecimal.ZERO).toPlainString());
+        }
+        writer.write("}}");
+    }
+
+    public void endAmounts() throws IOException {
+        writer.write("],\"ranks\":{");
+    }
+
+    public void startRanks(InstructionType instructionType) throws IOException {
+        if (!firstRanks)
+            writer.write(',');
+        firstRanks = false;
+        ReportJsonLinesSink.writeString(writer, instructionType.getName());
+        writer.write(":[");
+        first = true;
+    }
+
+    public void writeRank(InstructionType instructionType, String entity, int rank) throws IOException {
+        writeSeparator();
+        writer.write("{\"entity\":");
+        ReportJsonLinesSink.writeString(writer, entity);
+        writer.write(",\"rank\":");
+        writer.write(Integer.toString(rank));
+        writer.write('}');
+    }
+
+    public void endRanks(InstructionType instructionType) throws IOException {
+        writer.write(']');
+    }
+
+    public void flush() throws IOException {
+        writer.write("}}\n");
+        writer.flush();
+    }
+
+    private void writeSeparator() throws IOException {
+        if (!first)
+            writer.write(',');
+        first = false;
+    }
+}
@@ -0,0 +1,222 @@
+package services.instruction.report;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.FileVersion;
+import utils.metrics.PipelineMetrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ReportServer serves reports over HTTP from instructions kept in memory (is a part of report service package):
+ * - loads instructions once into an index of daily partial aggregates (see: ReportIndex),
+ *   so a report of any date range is calculated without reading the data source
+ * - answers GET /report?start=2016-01-01&end=2016-12-31 with a report as a JSON document (see: ReportJsonSink),
+ *   dates are optional (the whole range by default), an invalid request is answered with {"error":"..."}
+ *   (404 for any other path, 503 until instructions are loaded for the first time)
+ * - reuses reports of repeated date ranges (see: ReportCache)
+ * - checks the version of the data source periodically and reloads the index in the background when it changes,
+ *   requests are answered from the previous index until the new one is loaded
+ * - doesn't reload a data source without a version (its index is loaded once, it can't tell when it changes)
+ * - releases a replaced index once the requests which are still using it are answered (see: ReportIndex.release)
+ */
+
+public class ReportServer implements Closeable {
+
+    public static String ReportPath = "/report";
+    private static int Threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private ReportService reportService;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService reloader;
+    private long reloadInterval;
+    private TimeUnit unit;
+    private volatile State state;
+
+    public ReportServer(ReportService reportService, InetSocketAddress address, long reloadInterval, TimeUnit unit) throws IOException {
+        this.reportService = reportService;
+        this.reloadInterval = reloadInterval;
+        this.unit = unit;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newFixedThreadPool(Threads);
+        this.reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ReportServer reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext(ReportPath, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        reload();
+        server.start();
+        reloader.scheduleWithFixedDelay(this::reload, reloadInterval, reloadInterval, unit);
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        reloader.shutdownNow();
+        server.stop(0);
+        executor.shutdownNow();
+        State state = this.state;
+        this.state = null;
+        if (state != null)
+            state.release();
+    }
+
+    void reload() {
+        try {
+            Optional<FileVersion> version = reportService.getVersion();
+            State state = this.state;
+            if (state == null || (version.isPresent() && !version.equals(state.version))) {
+                this.state = new State(version, reportService.index());
+                if (state != null)
+                    state.release();
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Can't reload instructions");
+            e.printStackTrace();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        State state = acquire();
+        try {
+            if (!exchange.getRequestURI().getPath().equals(ReportPath))
+                respond(exchange, 404, error("Path " + exchange.getRequestURI().getPath() + " isn't found"));
+            else if (!exchange.getRequestMethod().equals("GET"))
+                respond(exchange, 405, error("Method " + exchange.getRequestMethod() + " isn't allowed"));
+            else if (state == null)
+                respond(exchange, 503, error("Instructions aren't loaded yet"));
+            else {
+                Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                LocalDate start = parseDate(parameters, "start", LocalDate.MIN);
+                LocalDate end = parseDate(parameters, "end", LocalDate.MAX);
+                long started = PipelineMetrics.Report.start();
+                byte[] report = write(reportService.calculate(state.index, state.version, start, end));
+                PipelineMetrics.Report.end(started);
+                respond(exchange, 200, report);
+            }
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, error("Can't calculate report"));
+        } finally {
+            if (state != null)
+                state.release();
+            exchange.close();
+        }
+    }
+
+    private State acquire() {
+        while (true) {
+            State state = this.state;
+            if (state == null || state.acquire())
+                return state;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty())
+            return parameters;
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator < 0)
+                parameters.put(URLDecoder.decode(parameter, "UTF-8"), "");
+            else
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+        }
+        return parameters;
+    }
+
+    private static LocalDate parseDate(Map<String, String> parameters, String name, LocalDate defaultDate) {
+        String value = parameters.get(name);
+        if (value == null)
+            return defaultDate;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Parameter " + name + " '" + value + "' isn't a date of yyyy-MM-dd format");
+        }
+    }
+
+    private static byte[] write(Report report) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        report.writeTo(new ReportJsonSink(writer));
+        return output.toByteArray();
+    }
+
+    private static byte[] error(String message) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        writer.write("{\"error\":");
+        ReportJsonLinesSink.writeString(writer, message);
+        writer.write("}\n");
+        writer.flush();
+        return output.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+
+    private static class State {
+        private final Optional<FileVersion> version;
+        private final ReportIndex index;
+        private final AtomicInteger users = new AtomicInteger(1);
+
+        State(Optional<FileVersion> version, ReportIndex index) {
+            this.version = version;
+            this.index = index;
+        }
+
+        // fails when the state is already released, the caller has to take the current one
+        boolean acquire() {
+            int count;
+            do {
+                count = users.get();
+                if (count == 0)
+                    return false;
+            } while (!users.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            if (users.decrementAndGet() == 0)
+                index.release();
+        }
+    }
+}
@@ -1,79 +1,228 @@
 package services.instruction.report;
 
+import csv.CSVTail;
+import models.Dictionary;
 import models.Instruction;
+import models.InstructionStore;
 import models.InstructionType;
-import models.dao.InstructionCSVDAO;
+import models.dao.InstructionDAO;
 import services.instruction.SettlementDateCalculator;
 import services.instruction.ValueCalculator;
+import utils.FileVersion;
+import utils.metrics.PipelineMetrics;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toMap;
-import static services.instruction.report.ReportTablePrinter.printAmounts;
-import static utils.data.ListUtils.groupToStream;
-import static utils.data.MapUtils.zipWithRankByValue;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collector;
 
 /* ReportService is responsible for generating a report:
     - formats and organises the data by grouping
     - uses other services and utilities for calculations
     - uses an injected data access object to read instructions
-    - doesn't contain any logic which determines how the data will be used next (see: ReportTablePrinter)
+      (or runs directly on instructions already loaded into an InstructionStore)
+    - can be called from many threads for snapshots of instructions (see: VersionedInstructionStore),
+      a report is calculated without any shared mutable state and written to a sink given by a caller
+    - shares the entities dictionary with the data access object, so entities are grouped by their ids
+    - calculates all the report's data in one pass over instructions (see: ReportAggregator)
+    - can answer many date ranges from an index of daily partial aggregates built once per load (see: ReportIndex)
+    - caches calculated reports by their date ranges and versions of the data source (see: ReportCache)
+    - can rank only the top entities of every type (a rank limit, entities tied with the last one are ranked too)
+    - can rank entities of a data access object approximately in a fixed amount of memory (a sketch capacity):
+      the first pass keeps a sketch of top entities per type (see: EntitySketch), the second one sums amounts
+      of the sketch's candidates exactly and ranks only entities which are certainly above all the others
+      (both passes read entity names without encoding them, see: InstructionDAO.withoutEntityIds,
+      and the second pass doesn't report invalid records again, see: InstructionDAO.withoutRejects)
+    - can serve reports over HTTP from an index kept in memory and reloaded when the data source changes (see: ReportServer)
+    - can follow a CSV file which is appended to, folding only appended instructions into running aggregates
+      and printing the report again whenever they change
+    - records metrics of its stages (see: PipelineMetrics)
+    - doesn't contain any logic which determines how the data will be used next,
+      writes a report to an injected sink (a console table by default, see: ReportSink)
 */
 
 public class ReportService {
 
+    public static int NoRankLimit = Integer.MAX_VALUE;
+    public static int NoSketch = 0;
+
     private SettlementDateCalculator settlementDateCalculator;
     private ValueCalculator valueCalculator;
-    private InstructionCSVDAO instructionCsvDAO;
+    private InstructionDAO instructionDAO;
+    private Dictionary<String> entities;
+    private ReportCache reportCache;
+    private int rankLimit;
+    private int sketchCapacity;
+    private ReportSink reportSink;
+
+    public ReportService(SettlementDateCalculator settlementDateCalculator,
+                         ValueCalculator valueCalculator,
+                         InstructionDAO instructionDAO,
+                         Dictionary<String> entities) {
+        this(settlementDateCalculator, valueCalculator, instructionDAO, entities, new ReportCache());
+    }
+
+    public ReportService(SettlementDateCalculator settlementDateCalculator,
+                         ValueCalculator valueCalculator,
+                         InstructionDAO instructionDAO,
+                         Dictionary<String> entities,
+                         ReportCache reportCache) {
+        this(settlementDateCalculator, valueCalculator, instructionDAO, entities, reportCache, NoRankLimit);
+    }
 
     public ReportService(SettlementDateCalculator settlementDateCalculator,
                          ValueCalculator valueCalculator,
-                         InstructionCSVDAO instructionCsvDAO) {
+                         InstructionDAO instructionDAO,
+                         Dictionary<String> entities,
+                         ReportCache reportCache,
+                         int rankLimit) {
+        this(settlementDateCalculator, valueCalculator, instructionDAO, entities, reportCache, rankLimit,
+                new ReportTableSink(new BufferedWriter(new OutputStreamWriter(System.out))));
+    }
+
+    public ReportService(SettlementDateCalculator settlementDateCalculator,
+                         ValueCalculator valueCalculator,
+                         InstructionDAO instructionDAO,
+                         Dictionary<String> entities,
+                         ReportCache reportCache,
+                         int rankLimit,
+                         ReportSink reportSink) {
+        this(settlementDateCalculator, valueCalculator, instructionDAO, entities, reportCache, rankLimit, NoSketch, reportSink);
+    }
+
+    public ReportService(SettlementDateCalculator settlementDateCalculator,
+                         ValueCalculator valueCalculator,
+                         InstructionDAO instructionDAO,
+                         Dictionary<String> entities,
+                         ReportCache reportCache,
+                         int rankLimit,
+                         int sketchCapacity,
+                         ReportSink reportSink) {
         this.settlementDateCalculator = settlementDateCalculator;
         this.valueCalculator = valueCalculator;
-        this.instructionCsvDAO = instructionCsvDAO;
+        this.instructionDAO = instructionDAO;
+        this.entities = entities;
+        this.reportCache = reportCache;
+        this.rankLimit = rankLimit;
+        this.sketchCapacity = sketchCapacity;
+        this.reportSink = reportSink;
+    }
+
+    public ReportCache getReportCache() {
+        return reportCache;
     }
 
     public void generateByReceivedDates(LocalDate start, LocalDate end) {
-        List<Instruction> instructions = instructionCsvDAO.getByReceivedDate(start, end);
-        printAmounts(calcAmountByDateAndType(instructions));
-        calcAmountRankByTypeAndEntity(instructions).forEach(ReportTablePrinter::printRanks);
+        long started = PipelineMetrics.Report.start();
+        Optional<FileVersion> version = instructionDAO.getVersion();
+        print(version.isPresent()
+                ? reportCache.get(start, end, version.get(), () -> calculate(start, end))
+                : calculate(start, end));
+        PipelineMetrics.Report.end(started);
+    }
+
+    public void generateByReceivedDates(InstructionStore instructions, LocalDate start, LocalDate end) {
+        generateByReceivedDates(instructions, start, end, reportSink);
+    }
+
+    public void generateByReceivedDates(InstructionStore instructions, LocalDate start, LocalDate end, ReportSink reportSink) {
+        long started = PipelineMetrics.Report.start();
+        print(report(ReportAggregator.aggregate(instructions, start, end, settlementDateCalculator, valueCalculator)), reportSink);
+        PipelineMetrics.Report.end(started);
+    }
+
+    public ReportIndex index() {
+        return instructionDAO.collectByReceivedDate(LocalDate.MIN, LocalDate.MAX,
+                ReportIndex.collector(settlementDateCalculator, valueCalculator, entities));
+    }
+
+    public ReportIndex index(InstructionStore instructions) {
+        return ReportIndex.build(instructions, settlementDateCalculator, valueCalculator);
+    }
+
+    public void generateByReceivedDates(ReportIndex index, LocalDate start, LocalDate end) {
+        long started = PipelineMetrics.Report.start();
+        print(report(index.aggregate(start, end)));
+        PipelineMetrics.Report.end(started);
+    }
+
+    Optional<FileVersion> getVersion() {
+        return instructionDAO.getVersion();
+    }
+
+    Report calculate(ReportIndex index, Optional<FileVersion> version, LocalDate start, LocalDate end) {
+        return version.isPresent()
+                ? reportCache.get(start, end, version.get(), () -> report(index.aggregate(start, end)))
+                : report(index.aggregate(start, end));
+    }
+
+    public void follow(CSVTail<Instruction> instructions, long interval, TimeUnit unit) throws InterruptedException {
+        ReportAggregator report = new ReportAggregator(settlementDateCalculator, valueCalculator, entities);
+        AtomicBoolean restarted = new AtomicBoolean();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long read = instructions.read(report::add, () -> {
+                    report.reset();
+                    restarted.set(true);
+                });
+                if (read > 0 || restarted.getAndSet(false))
+                    print(new Report(report, rankLimit));
+                instructions.await(interval, unit);
+            }
+        } finally {
+            report.release();
+        }
     }
 
     Map<LocalDate, Map<InstructionType, BigDecimal>> calcAmountByDateAndType(List<Instruction> instructions) {
-        return groupToStream(instructions, groupingBy(this::calcSettlementDate))
-                .collect(toMap(Entry::getKey, entry -> calcAmountByType(entry.getValue())));
+        return instructions.stream().collect(aggregate()).getAmountByDateAndType();
+    }
+
+    Map<InstructionType, Map<Integer, Integer>> calcAmountRankByTypeAndEntity(List<Instruction> instructions) {
+        return calcAmountRankByTypeAndEntity(instructions, rankLimit);
     }
 
-    Map<InstructionType, Map<String, Integer>> calcAmountRankByTypeAndEntity(List<Instruction> instructions) {
-        return groupToStream(instructions, groupingBy(Instruction::getInstructionType))
-                .collect(toMap(Entry::getKey, entry -> calcAmountRankByEntity(entry.getValue())));
+    Map<InstructionType, Map<Integer, Integer>> calcAmountRankByTypeAndEntity(List<Instruction> instructions, int rankLimit) {
+        return instructions.stream().collect(aggregate()).getAmountRankByTypeAndEntity(rankLimit);
     }
 
-    private LocalDate calcSettlementDate(Instruction instruction) {
-        return settlementDateCalculator.calculate(instruction);
+    private Report calculate(LocalDate start, LocalDate end) {
+        InstructionDAO instructions = sketchCapacity != NoSketch ? instructionDAO.withoutEntityIds() : instructionDAO;
+        ReportAggregator aggregator = instructions.collectByReceivedDate(start, end,
+                ReportAggregator.collector(settlementDateCalculator, valueCalculator, entities, sketchCapacity));
+        if (aggregator.isSketched())
+            aggregator.confirm(instructions.withoutRejects().collectByReceivedDate(start, end,
+                    EntityConfirmation.collector(aggregator.getCandidates(), valueCalculator)));
+        return report(aggregator);
     }
 
-    private Map<InstructionType, BigDecimal> calcAmountByType(List<Instruction> instructions) {
-        return groupToStream(instructions, groupingBy(Instruction::getInstructionType))
-                .collect(toMap(Entry::getKey, entry -> calcAmount(entry.getValue())));
+    private Report report(ReportAggregator aggregator) {
+        Report report = new Report(aggregator, rankLimit);
+        aggregator.release();
+        return report;
     }
 
-    private BigDecimal calcAmount(List<Instruction> instructions) {
-        return valueCalculator.calculate(instructions);
+    private void print(Report report) {
+        print(report, reportSink);
     }
 
-    private Map<String, Integer> calcAmountRankByEntity(List<Instruction> instructions) {
-        return zipWithRankByValue(calcAmountByEntity(instructions));
+    private void print(Report report, ReportSink reportSink) {
+        try {
+            report.writeTo(reportSink);
+        } catch (IOException e) {
+            System.out.println("Can't write report");
+            e.printStackTrace();
+        }
     }
 
-    private Map<String, BigDecimal> calcAmountByEntity(List<Instruction> instructions) {
-        return groupToStream(instructions, groupingBy(Instruction::getEntity))
-                .collect(toMap(Entry::getKey, entry -> calcAmount(entry.getValue())));
+    private Collector<Instruction, ?, ReportAggregator> aggregate() {
+        return ReportAggregator.collector(settlementDateCalculator, valueCalculator, entities);
     }
 }
@@ -0,0 +1,34 @@
+package services.instruction.report;
+
+import models.InstructionType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * ReportSink receives a report from ReportService row by row:
+ * - amounts come sorted by settlement dates (the latest first), ranks of every type come sorted by ranks
+ * - a sink decides how rows are formatted and where they are written
+ *   (see: ReportTableSink, ReportCSVSink, ReportJsonSink, ReportJsonLinesSink)
+ * - a sink writes rows to a single buffered writer, which is flushed once a whole report is written
+ *   (the writer is owned by a caller, a sink doesn't close it)
+ */
+
+public interface ReportSink {
+
+    void startAmounts() throws IOException;
+
+    void writeAmounts(LocalDate settlementDate, Map<InstructionType, BigDecimal> amounts) throws IOException;
+
+    void endAmounts() throws IOException;
+
+    void startRanks(InstructionType instructionType) throws IOException;
+
+    void writeRank(InstructionType instructionType, String entity, int rank) throws IOException;
+
+    void endRanks(InstructionType instructionType) throws IOException;
+
+    void flush() throws IOException;
+}
@@ -0,0 +1,79 @@
+package services.instruction.report;
+
+import models.InstructionType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * ReportTableSink writes a report as text tables (f.e. to a console):
+ * - pads every cell with spaces to the width of a column (without formatting a string per cell)
+ * - writes zero amounts of types which have no instructions for a date
+ */
+
+public class ReportTableSink implements ReportSink {
+
+    private static int ColumnWidth = 20;
+    private static DateTimeFormatter DateFormat = DateTimeFormatter.ofPattern("dd MMMM yyyy");
+
+    private static char[] Padding = new char[ColumnWidth];
+
+    static {
+        Arrays.fill(Padding, ' ');
+    }
+
+    private Writer writer;
+
+    public ReportTableSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    public void startAmounts() throws IOException {
+        writer.write('\n');
+        writeCell("Settlement Date");
+        for (InstructionType instructionType : InstructionType.values())
+            writeCell("Amount (" + instructionType.getName() + ")");
+    }
+
+    public void writeAmounts(LocalDate settlementDate, Map<InstructionType, BigDecimal> amounts) throws IOException {
+        writer.write('\n');
+        writeCell(settlementDate.format(DateFormat));
+        for (InstructionType instructionType : InstructionType.values())
+            writeCell(amounts.getOrDefault(instructionType, BigDecimal.ZERO).toString());
+    }
+
+    public void endAmounts() throws IOException {
+        writer.write('\n');
+    }
+
+    public void startRanks(InstructionType instructionType) throws IOException {
+        writer.write('\n');
+        writeCell("Entity");
+        writeCell("Rank (" + instructionType.getName() + ")");
+    }
+
+    public void writeRank(InstructionType instructionType, String entity, int rank) throws IOException {
+        writer.write('\n');
+        writeCell(entity);
+        writeCell(Integer.toString(rank));
+    }
+
+    public void endRanks(InstructionType instructionType) throws IOException {
+        writer.write('\n');
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeCell(String value) throws IOException {
+        writer.write(value);
+        if (value.length() < ColumnWidth)
+            writer.write(Padding, 0, ColumnWidth - value.length());
+    }
+}
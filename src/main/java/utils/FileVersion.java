@@ -0,0 +1,107 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * FileVersion identifies a version of a file's content:
+ * - consists of the file's size, last modification time and a fingerprint of its content
+ * - the fingerprint is a CRC32 of the first and the last blocks of the file, so it's cheap for files of any size
+ *   (together with the size and the modification time it catches rewrites, appends and replacements of a file)
+ * - a version of several files (shards of one CSV file) combines versions of the files and their names,
+ *   so adding, removing or changing any of the files changes it
+ * - two versions are equal only if all of their parts are equal
+ */
+
+public final class FileVersion {
+
+    private static int BlockSize = 1 << 16;
+
+    private long size;
+    private long lastModified;
+    private long fingerprint;
+
+    FileVersion(long size, long lastModified, long fingerprint) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fingerprint = fingerprint;
+    }
+
+    public static FileVersion of(Path path) throws IOException {
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+            ByteBuffer block = ByteBuffer.allocate(BlockSize);
+            update(crc, channel, block, 0);
+            if (size > BlockSize)
+                update(crc, channel, block, Math.max(BlockSize, size - BlockSize));
+            return new FileVersion(size, lastModified, crc.getValue());
+        }
+    }
+
+    public static FileVersion of(List<Path> paths) throws IOException {
+        if (paths.size() == 1)
+            return of(paths.get(0));
+        long size = 0;
+        long lastModified = 0;
+        CRC32 crc = new CRC32();
+        for (Path path : paths) {
+            FileVersion version = of(path);
+            size += version.size;
+            lastModified = Math.max(lastModified, version.lastModified);
+            crc.update(path.toString().getBytes(StandardCharsets.UTF_8));
+            crc.update(ByteBuffer.allocate(3 * Long.BYTES).putLong(version.size).putLong(version.lastModified).putLong(version.fingerprint).array());
+        }
+        return new FileVersion(size, lastModified, crc.getValue());
+    }
+
+    private static void update(CRC32 crc, FileChannel channel, ByteBuffer block, long position) throws IOException {
+        block.clear();
+        while (block.hasRemaining())
+            if (channel.read(block, position + block.position()) <= 0)
+                break;
+        block.flip();
+        crc.update(block);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        FileVersion version = (FileVersion) o;
+        return size == version.size && lastModified == version.lastModified && fingerprint == version.fingerprint;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return "FileVersion{size=" + size + ", lastModified=" + lastModified + ", fingerprint=" + fingerprint + "}";
+    }
+}
@@ -6,6 +6,8 @@ import java.util.stream.Collectors;
 
 /**
  * MapUtils contains functionality which can be applied to maps
+ * - zipWithTopRankByValue ranks only the top n entries: it selects them with a bounded heap (O(n log k)) and sorts just them,
+ *   entries tied with the n-th one are kept too, so ranks and order are the same as the top of a full ranking
  */
 
 public class MapUtils {
@@ -32,4 +34,30 @@ public class MapUtils {
 
         return b;
     }
+
+    public static <K, V extends Comparable<V>> Map<K, Integer> zipWithTopRankByValue(Map<K, V> m, int n) {
+        if (n <= 0)
+            return new LinkedHashMap<>();
+        if (m.size() <= n)
+            return zipWithRankByValue(m);
+
+        PriorityQueue<V> h = new PriorityQueue<>(n);
+        for (V v : m.values()) {
+            if (h.size() < n)
+                h.add(v);
+            else if (v.compareTo(h.peek()) > 0) {
+                h.poll();
+                h.add(v);
+            }
+        }
+
+        V t = h.peek();
+        Map<K, V> top = new LinkedHashMap<>();
+        m.forEach((k, v) -> {
+            if (v.compareTo(t) >= 0)
+                top.put(k, v);
+        });
+
+        return zipWithRankByValue(top);
+    }
 }
@@ -0,0 +1,62 @@
+package utils.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PipelineMetrics keeps metrics of every stage of the report pipeline (see: StageMetrics):
+ * - Read: reading CSV files (wall time of a whole read, including stages fused into it; rows read, bytes read)
+ * - Parse: parsing a CSV row into an instruction (sampled per row; rows parsed, rows rejected as invalid)
+ * - Filter: matching a row's received date with a requested range (sampled per row; rows out of the range are rejected)
+ * - SettlementDate: calculating a settlement date of an instruction (sampled per row)
+ * - Aggregate: folding an instruction into report's accumulators (sampled per row)
+ * - Rank: ranking entities of a report (rows are ranked entities)
+ * - Print: writing a report to a sink (rows are written rows)
+ * - Report: generating a whole report (end to end)
+ * - metrics are global and always recorded, register exposes them as JMX MBeans
+ *   (instructionprocessor:type=PipelineStage,name=<stage>), so a running process can be watched f.e. with jconsole
+ */
+
+public class PipelineMetrics {
+
+    public static String Domain = "instructionprocessor";
+
+    public static StageMetrics Read = new StageMetrics("Read");
+    public static StageMetrics Parse = new StageMetrics("Parse");
+    public static StageMetrics Filter = new StageMetrics("Filter");
+    public static StageMetrics SettlementDate = new StageMetrics("SettlementDate");
+    public static StageMetrics Aggregate = new StageMetrics("Aggregate");
+    public static StageMetrics Rank = new StageMetrics("Rank");
+    public static StageMetrics Print = new StageMetrics("Print");
+    public static StageMetrics Report = new StageMetrics("Report");
+
+    public static List<StageMetrics> getStages() {
+        return Arrays.asList(Read, Parse, Filter, SettlementDate, Aggregate, Rank, Print, Report);
+    }
+
+    public static synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (StageMetrics stage : getStages()) {
+            try {
+                ObjectName name = getObjectName(stage);
+                if (!server.isRegistered(name))
+                    server.registerMBean(stage, name);
+            } catch (JMException e) {
+                System.out.println("Can't register metrics of stage " + stage.getName());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static ObjectName getObjectName(StageMetrics stage) throws JMException {
+        return new ObjectName(Domain + ":type=PipelineStage,name=" + stage.getName());
+    }
+
+    public static void reset() {
+        getStages().forEach(StageMetrics::reset);
+    }
+}
@@ -0,0 +1,171 @@
+package utils.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StageMetrics measures a stage of the report pipeline (see: PipelineMetrics):
+ * - counts calls, rows, rejected rows and bytes with LongAdders, so threads don't contend on counters
+ * - keeps latencies of calls in a histogram of power-of-two buckets (a bucket of latencies up to 2^n nanoseconds),
+ *   percentiles are upper bounds of their buckets (so they are accurate within a factor of 2)
+ * - a stage called once per row (f.e. parsing) times only a random sample of rows (one of SampleRate),
+ *   its calls and total time are estimated from the sample, rows are always counted
+ * - rows per second are rows divided by the total time of the stage
+ */
+
+public final class StageMetrics implements StageMetricsMBean {
+
+    public static int SampleRate = 64;
+    public static long NotSampled = Long.MIN_VALUE;
+
+    private static int Buckets = 64;
+    private static double NanosPerMicro = 1e3;
+
+    private String name;
+    private LongAdder calls = new LongAdder();
+    private LongAdder nanos = new LongAdder();
+    private LongAdder rows = new LongAdder();
+    private LongAdder rejectedRows = new LongAdder();
+    private LongAdder bytes = new LongAdder();
+    private LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private AtomicLongArray histogram = new AtomicLongArray(Buckets);
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void end(long start) {
+        record(System.nanoTime() - start, 1);
+    }
+
+    public void end(long start, long rows) {
+        end(start);
+        addRows(rows);
+    }
+
+    public long startSample() {
+        return ThreadLocalRandom.current().nextInt(SampleRate) == 0 ? System.nanoTime() : NotSampled;
+    }
+
+    public void endSample(long start) {
+        rows.increment();
+        if (start != NotSampled)
+            record(System.nanoTime() - start, SampleRate);
+    }
+
+    public void addRows(long count) {
+        rows.add(count);
+    }
+
+    public void addRejectedRows(long count) {
+        rejectedRows.add(count);
+    }
+
+    public void addBytes(long count) {
+        bytes.add(count);
+    }
+
+    private void record(long latency, int weight) {
+        calls.add(weight);
+        nanos.add(latency * weight);
+        maxNanos.accumulate(latency);
+        histogram.addAndGet(bucket(latency), weight);
+    }
+
+    private static int bucket(long latency) {
+        return Math.min(Buckets - 1, Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, latency)));
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getTotalTimeMillis() {
+        return nanos.sum() / 1_000_000;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getRejectedRows() {
+        return rejectedRows.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public double getRowsPerSecond() {
+        long total = nanos.sum();
+        return total > 0 ? rows.sum() * 1e9 / total : 0;
+    }
+
+    public double getMeanLatencyMicros() {
+        long count = calls.sum();
+        return count > 0 ? nanos.sum() / NanosPerMicro / count : 0;
+    }
+
+    public double getLatencyP50Micros() {
+        return getLatencyPercentileMicros(0.5);
+    }
+
+    public double getLatencyP99Micros() {
+        return getLatencyPercentileMicros(0.99);
+    }
+
+    public double getMaxLatencyMicros() {
+        return maxNanos.get() / NanosPerMicro;
+    }
+
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[Buckets];
+        for (int i = 0; i < Buckets; i++)
+            counts[i] = histogram.get(i);
+        return counts;
+    }
+
+    public double getLatencyPercentileMicros(double percentile) {
+        long[] counts = getLatencyHistogram();
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        if (total == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < Buckets; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0)
+                return Math.min(1L << i, Math.max(1, maxNanos.get())) / NanosPerMicro;
+        }
+        return getMaxLatencyMicros();
+    }
+
+    public void reset() {
+        calls.reset();
+        nanos.reset();
+        rows.reset();
+        rejectedRows.reset();
+        bytes.reset();
+        maxNanos.reset();
+        for (int i = 0; i < Buckets; i++)
+            histogram.set(i, 0);
+    }
+
+    @Override
+    public String toString() {
+        return name + "{calls=" + getCalls() + ", totalTimeMillis=" + getTotalTimeMillis() + ", rows=" + getRows()
+                + ", rejectedRows=" + getRejectedRows() + ", bytes=" + getBytes() + "}";
+    }
+}
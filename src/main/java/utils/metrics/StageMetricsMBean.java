@@ -0,0 +1,32 @@
+package utils.metrics;
+
+/**
+ * StageMetricsMBean is a management interface of a pipeline stage's metrics (see: StageMetrics)
+ */
+
+public interface StageMetricsMBean {
+
+    long getCalls();
+
+    long getTotalTimeMillis();
+
+    long getRows();
+
+    long getRejectedRows();
+
+    long getBytes();
+
+    double getRowsPerSecond();
+
+    double getMeanLatencyMicros();
+
+    double getLatencyP50Micros();
+
+    double getLatencyP99Micros();
+
+    double getMaxLatencyMicros();
+
+    long[] getLatencyHistogram();
+
+    void reset();
+}
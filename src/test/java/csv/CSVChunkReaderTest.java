@@ -0,0 +1,83 @@
+package csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class CSVChunkReaderTest {
+
+    private static Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createFile(List<String> lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), lines, UTF8);
+        return file;
+    }
+
+    private static List<String> read(File file, int parallelism, long minChunkSize) throws IOException {
+        return new CSVChunkReader(file.toPath(), UTF8, parallelism, minChunkSize)
+                .collect(r -> Optional.of(r.get("Name") + "|" + r.get("Value")), toList());
+    }
+
+    @Test
+    public void readInChunks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        lines.add("Name,Value");
+        for (int i = 0; i < 100; i++) {
+            lines.add("name " + i + "," + i);
+            expected.add("name " + i + "|" + i);
+        }
+
+        assertEquals(expected, read(createFile(lines), 4, 16));
+    }
+
+    @Test
+    public void readInChunksWithQuotedNewLines() throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        lines.add("Name,Value");
+        for (int i = 0; i < 50; i++) {
+            lines.add("\"quoted\n\"\"name\"\"\n" + i + "\"," + i);
+            expected.add("quoted\n\"name\"\n" + i + "|" + i);
+        }
+
+        assertEquals(expected, read(createFile(lines), 4, 7));
+    }
+
+    @Test
+    public void readInSingleChunk() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("Name,Value");
+        lines.add("first,1");
+        lines.add("second,2");
+
+        List<String> expected = new ArrayList<>();
+        expected.add("first|1");
+        expected.add("second|2");
+
+        assertEquals(expected, read(createFile(lines), 4, 1 << 20));
+    }
+
+    @Test
+    public void readHeaderOnly() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("Name,Value");
+
+        assertEquals(new ArrayList<String>(), read(createFile(lines), 4, 16));
+    }
+}
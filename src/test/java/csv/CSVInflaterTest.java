@@ -0,0 +1,124 @@
+package csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSVInflaterTest {
+
+    private static Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createCompressedFile(byte[] content) throws IOException {
+        File file = folder.newFile();
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file.toPath()))) {
+            output.write(content);
+        }
+        return file;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+        while ((read = input.read(buffer)) >= 0)
+            output.write(buffer, 0, read);
+        return output.toByteArray();
+    }
+
+    @Test
+    public void readCompressedFile() throws IOException {
+        byte[] content = new byte[(1 << 20) + 17];
+        Random random = new Random(3);
+        for (int i = 0; i < content.length; i++)
+            content[i] = (byte) ('a' + random.nextInt(4));
+        File file = createCompressedFile(content);
+
+        assertTrue(CSVInflater.isCompressed(file.toPath()));
+        try (InputStream input = CSVInflater.open(file.toPath())) {
+            assertArrayEquals(content, readAll(input));
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    public void readPlainFile() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "a,b\n".getBytes(UTF8));
+
+        assertFalse(CSVInflater.isCompressed(file.toPath()));
+        assertFalse(CSVInflater.isCompressed(folder.newFile().toPath()));
+        try (InputStream input = CSVInflater.open(file.toPath())) {
+            assertArrayEquals("a,b\n".getBytes(UTF8), readAll(input));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readTruncatedCompressedFile() throws IOException {
+        byte[] content = new byte[1 << 18];
+        new Random(5).nextBytes(content);
+        File file = createCompressedFile(content);
+        byte[] compressed = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(compressed, compressed.length / 2));
+
+        try (InputStream input = CSVInflater.open(file.toPath())) {
+            readAll(input);
+        }
+    }
+
+    @Test
+    public void stopDecompressionOnClose() throws IOException, InterruptedException {
+        File file = createCompressedFile(new byte[1 << 24]);
+
+        CSVInflater input = (CSVInflater) CSVInflater.open(file.toPath());
+        assertEquals(0, input.read());
+        input.close();
+
+        for (int i = 0; i < 50 && threadsNamed(file.getName()) > 0; i++)
+            Thread.sleep(100);
+        assertEquals(0, threadsNamed(file.getName()));
+    }
+
+    @Test
+    public void readCompressedShards() throws IOException {
+        File directory = folder.newFolder();
+        List<String> lines = new ArrayList<>(Arrays.asList("Name,Value", "a,1", "b,2"));
+        Files.write(new File(directory, "1.csv").toPath(), lines, UTF8);
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(new File(directory, "2.csv.gz").toPath()))) {
+            output.write("Name,Value\nc,3\n".getBytes(UTF8));
+        }
+
+        List<String> result = new CSVShardReader(CSVShardReader.resolve(directory.getPath()), UTF8, 2)
+                .collect(r -> Optional.of(r.get("Name") + "|" + r.get("Value")), toList());
+
+        assertEquals(Arrays.asList("a|1", "b|2", "c|3"), result);
+    }
+
+    private static long threadsNamed(String fileName) {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().equals("CSVInflater " + fileName))
+                .count();
+    }
+}
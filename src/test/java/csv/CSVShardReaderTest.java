@@ -0,0 +1,77 @@
+package csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class CSVShardReaderTest {
+
+    private static Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void createShard(File directory, String name, String header, int from, int count) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(header);
+        for (int i = from; i < from + count; i++)
+            lines.add(header.startsWith("Name") ? "name " + i + "," + i : i + ",name " + i);
+        Files.write(new File(directory, name).toPath(), lines, UTF8);
+    }
+
+    private static List<String> getExpected(int count) {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            expected.add("name " + i + "|" + i);
+        return expected;
+    }
+
+    private static List<String> read(String location, int parallelism) throws IOException {
+        return new CSVShardReader(CSVShardReader.resolve(location), UTF8, parallelism)
+                .collect(r -> Optional.of(r.get("Name") + "|" + r.get("Value")), toList());
+    }
+
+    private static List<String> names(List<Path> paths) {
+        return paths.stream().map(p -> p.getFileName().toString()).collect(toList());
+    }
+
+    @Test
+    public void readShardsOfDirectory() throws IOException {
+        File directory = folder.newFolder();
+        createShard(directory, "2016-01-01.csv", "Name,Value", 0, 10);
+        createShard(directory, "2016-01-02.csv", "Value,Name", 10, 1000);
+        createShard(directory, "2016-01-03.csv", "Name,Value", 1010, 1);
+        createShard(directory, "2016-01-04.csv", "Name,Value", 1011, 0);
+        createShard(directory, "readme.txt", "Name,Value", 5000, 1);
+
+        assertEquals(getExpected(1011), read(directory.getPath(), 3));
+        assertEquals(getExpected(1011), read(directory.getPath(), 1));
+    }
+
+    @Test
+    public void resolveShards() throws IOException {
+        File directory = folder.newFolder();
+        createShard(directory, "a-2.csv", "Name,Value", 0, 1);
+        createShard(directory, "a-1.csv", "Name,Value", 0, 1);
+        createShard(directory, "b-1.csv", "Name,Value", 0, 1);
+        File file = new File(directory, "a-1.csv");
+
+        assertEquals(Arrays.asList("a-1.csv", "a-2.csv", "b-1.csv"), names(CSVShardReader.resolve(directory.getPath())));
+        assertEquals(Arrays.asList("a-1.csv", "a-2.csv"), names(CSVShardReader.resolve(directory.getPath() + File.separator + "a-*.csv")));
+        assertEquals(Arrays.asList("a-1.csv"), names(CSVShardReader.resolve(file.getPath())));
+        assertEquals(Arrays.asList("missing.csv"), names(CSVShardReader.resolve(new File(directory, "missing.csv").getPath())));
+    }
+}
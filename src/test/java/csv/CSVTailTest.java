@@ -0,0 +1,104 @@
+package csv;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CSVTailTest {
+
+    private static Charset UTF8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void append(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(UTF8), StandardOpenOption.APPEND);
+    }
+
+    private static CSVTail<String> tail(File file) {
+        return new CSVTail<>(file.toPath(), UTF8, null, r -> Optional.of(r.get("Name") + "|" + r.get("Value")));
+    }
+
+    private static List<String> read(CSVTail<String> tail, AtomicInteger restarts) {
+        List<String> records = new ArrayList<>();
+        tail.read(records::add, restarts::incrementAndGet);
+        return records;
+    }
+
+    @Test
+    public void readAppendedRecords() throws IOException {
+        File file = folder.newFile();
+        AtomicInteger restarts = new AtomicInteger();
+        try (CSVTail<String> tail = tail(file)) {
+            assertEquals(Collections.emptyList(), read(tail, restarts));
+
+            append(file, "Name,Value\na,1\nb,2\n");
+            assertEquals(Arrays.asList("a|1", "b|2"), read(tail, restarts));
+            assertEquals(Collections.emptyList(), read(tail, restarts));
+
+            append(file, "c,3\n");
+            assertEquals(Collections.singletonList("c|3"), read(tail, restarts));
+            assertEquals(file.length(), tail.getOffset());
+            assertEquals(0, restarts.get());
+        }
+    }
+
+    @Test
+    public void readCompletedRecordsOnly() throws IOException {
+        File file = folder.newFile();
+        AtomicInteger restarts = new AtomicInteger();
+        try (CSVTail<String> tail = tail(file)) {
+            append(file, "Name,Va");
+            assertEquals(Collections.emptyList(), read(tail, restarts));
+
+            append(file, "lue\na,1\n\"quoted\nb");
+            assertEquals(Collections.singletonList("a|1"), read(tail, restarts));
+
+            append(file, "\",2\nc,");
+            assertEquals(Collections.singletonList("quoted\nb|2"), read(tail, restarts));
+
+            append(file, "3\n");
+            assertEquals(Collections.singletonList("c|3"), read(tail, restarts));
+        }
+    }
+
+    @Test
+    public void restartAfterTruncation() throws IOException {
+        File file = folder.newFile();
+        AtomicInteger restarts = new AtomicInteger();
+        try (CSVTail<String> tail = tail(file)) {
+            append(file, "Name,Value\na,1\nb,2\n");
+            assertEquals(Arrays.asList("a|1", "b|2"), read(tail, restarts));
+
+            Files.write(file.toPath(), "Name,Value\nc,3\n".getBytes(UTF8));
+            assertEquals(Collections.singletonList("c|3"), read(tail, restarts));
+            assertEquals(1, restarts.get());
+        }
+    }
+
+    @Test
+    public void awaitAppendedRecords() throws IOException, InterruptedException {
+        File file = folder.newFile();
+        try (CSVTail<String> tail = tail(file)) {
+            append(file, "Name,Value\na,1\n");
+
+            assertTrue(tail.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CSVTokenizerTest {
+
+    private static char[] Alphabet = {'a', 'b', ' ', ',', '"', '\n', '\r'};
+
+    private static List<List<String>> tokenize(String text) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        CSVRow row = new CSVRow(null);
+        try (CSVTokenizer tokenizer = new CSVTokenizer(new StringReader(text))) {
+            while (tokenizer.next(row))
+                rows.add(Arrays.asList(row.toArray()));
+        }
+        return rows;
+    }
+
+    private static List<List<String>> parse(String text) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CSVParser csvParser = CSVParser.parse(text, CSVFormat.DEFAULT)) {
+            for (CSVRecord csvRecord : csvParser) {
+                List<String> values = new ArrayList<>();
+                csvRecord.forEach(values::add);
+                rows.add(values);
+            }
+        }
+        return rows;
+    }
+
+    private static String getText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++)
+            text.append(Alphabet[random.nextInt(Alphabet.length)]);
+        return text.toString();
+    }
+
+    private static String getResult(String text, boolean tokenizer) {
+        try {
+            return (tokenizer ? tokenize(text) : parse(text)).toString();
+        } catch (IOException | IllegalStateException e) {
+            return "error";
+        }
+    }
+
+    @Test
+    public void tokenizeAsApacheLibrary() {
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            String text = getText(random);
+            assertEquals(text, getResult(text, false), getResult(text, true));
+        }
+    }
+
+    @Test
+    public void tokenizeRows() throws IOException {
+        List<List<String>> expected = Arrays.asList(
+                Arrays.asList("a", "", "b c"),
+                Arrays.asList("quoted, \"value\"\n", " x "),
+                Arrays.asList(""));
+
+        assertEquals(expected, tokenize("a,,b c\r\n\n\"quoted, \"\"value\"\"\n\" , x \r\"\""));
+    }
+
+    @Test
+    public void readRowsOfOtherDialect() throws IOException {
+        CSVFormat csvFormat = CSVFormat.DEFAULT.withDelimiter(';').withHeader();
+        try (CSVRowReader csvRows = CSVRowReader.of(new StringReader("Name;Value\na,b;1\n"), csvFormat)) {
+            CSVRow row = new CSVRow(csvRows.readHeader());
+
+            assertEquals(true, csvRows.next(row));
+            assertEquals("a,b", row.get("Name"));
+            assertEquals("1", row.getChars(1).toString());
+            assertEquals(false, csvRows.next(row));
+        }
+    }
+
+    @Test
+    public void numberRowsAfterHeaderAsApacheLibrary() throws IOException {
+        String text = "a,b\n1,2\n\n3,4\n";
+        List<Long> numbers = new ArrayList<>();
+        CSVRow row = new CSVRow(null);
+        try (CSVRowReader tokenizer = new CSVTokenizer(new StringReader(text))) {
+            tokenizer.readHeader();
+            while (tokenizer.next(row))
+                numbers.add(row.getNumber());
+        }
+
+        List<Long> expected = new ArrayList<>();
+        try (CSVParser csvParser = CSVParser.parse(text, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+            for (CSVRecord csvRecord : csvParser)
+                expected.add(csvRecord.getRecordNumber());
+        }
+
+        assertEquals(expected, numbers);
+        assertEquals(Arrays.asList(1L, 2L), numbers);
+    }
+}
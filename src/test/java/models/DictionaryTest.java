@@ -0,0 +1,63 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DictionaryTest {
+
+    @Test
+    public void encodeAndDecodeValues() {
+        Dictionary<String> dictionary = new Dictionary<>();
+
+        assertEquals(0, dictionary.encode("foo"));
+        assertEquals(1, dictionary.encode("bar"));
+        assertEquals(0, dictionary.encode("foo"));
+
+        assertEquals(2, dictionary.size());
+        assertEquals("foo", dictionary.decode(0));
+        assertEquals("bar", dictionary.decode(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectUnknownId() {
+        Dictionary<String> dictionary = new Dictionary<>();
+        dictionary.encode("foo");
+
+        dictionary.decode(1);
+    }
+
+    @Test
+    public void decodeEncodedValuesConcurrently() throws InterruptedException {
+        int rounds = 200;
+        int values = 1000;
+        for (int round = 0; round < rounds; round++) {
+            Dictionary<String> dictionary = new Dictionary<>();
+            AtomicReference<Throwable> error = new AtomicReference<>();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int value = 0; value < values; value++) {
+                            String name = "entity " + value;
+                            assertEquals(name, dictionary.decode(dictionary.encode(name)));
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }));
+            threads.forEach(Thread::start);
+            for (Thread thread : threads)
+                thread.join();
+
+            assertNull(error.get());
+            assertEquals(values, dictionary.size());
+        }
+    }
+}
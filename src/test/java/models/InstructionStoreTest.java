@@ -0,0 +1,117 @@
+package models;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static utils.test.TestUtils.getCurrency;
+import static utils.test.TestUtils.getDate;
+
+public class InstructionStoreTest {
+
+    private static Instruction getInstruction(String entity, LocalDate receivedDate, String unitPrice) {
+        return new Instruction(
+                entity,
+                InstructionType.SELL,
+                new BigDecimal("0.50"),
+                getCurrency("SGD"),
+                receivedDate,
+                receivedDate.plusDays(1),
+                200,
+                new BigDecimal(unitPrice)
+        );
+    }
+
+    @Test
+    public void storeInstructions() {
+        Instruction expected = getInstruction("Singapore", getDate(2016, 1, 1), "100.2509");
+
+        InstructionStore store = Stream.of(expected).collect(InstructionStore.collector(new Dictionary<>()));
+
+        assertEquals(1, store.size());
+        assertInstructions(store.get(0), expected);
+        assertEquals(100_2509L, store.getUnscaledUnitPrice(0));
+        assertEquals(4, store.getUnitPriceScale(0));
+    }
+
+    @Test
+    public void storeValuesWhichDontFitLong() {
+        Instruction expected = getInstruction("Singapore", getDate(2016, 1, 1), "1234567890.123456789");
+        Instruction tiny = getInstruction("Singapore", getDate(2016, 1, 1), "1E-130");
+
+        InstructionStore store = Stream.of(expected, tiny).collect(InstructionStore.collector(new Dictionary<>()));
+
+        assertEquals(2, store.size());
+        assertInstructions(store.get(0), expected);
+        assertInstructions(store.get(1), tiny);
+        assertFalse(store.isFixedPoint(0));
+        assertFalse(store.isFixedPoint(1));
+        assertEquals(new BigDecimal("0.50"), store.getExchangeRate(0));
+    }
+
+    @Test
+    public void addAllStores() {
+        InstructionStore first = new InstructionStore(new Dictionary<>());
+        first.add(getInstruction("first", getDate(2016, 1, 1), "1"));
+        InstructionStore second = new InstructionStore(first.getEntities());
+        Instruction expected = new Instruction("second", InstructionType.BUY, new BigDecimal("0.25"), getCurrency("AED"),
+                getDate(2016, 1, 2), getDate(2016, 1, 3), 10, new BigDecimal("1234567890.123456789"));
+        second.add(expected);
+        second.add(getInstruction("first", getDate(2016, 1, 3), "3"));
+
+        InstructionStore result = first.addAll(second);
+
+        assertEquals(3, result.size());
+        assertInstructions(result.get(1), expected);
+        assertEquals(getCurrency("SGD"), result.getCurrency(0));
+        assertEquals(getCurrency("SGD"), result.getCurrency(2));
+        assertEquals(result.getEntityId(0), result.getEntityId(2));
+        assertTrue(result.isFixedPoint(2));
+    }
+
+    @Test
+    public void encodeEntities() {
+        InstructionStore store = new InstructionStore(new Dictionary<>());
+        store.add(getInstruction("first", getDate(2016, 1, 1), "1"));
+        store.add(getInstruction("second", getDate(2016, 1, 1), "1"));
+        store.add(getInstruction("first", getDate(2016, 1, 1), "1"));
+
+        assertEquals(store.getEntityId(0), store.getEntityId(2));
+        assertEquals("second", store.getEntity(1));
+    }
+
+    @Test
+    public void scanByReceivedDate() {
+        InstructionStore store = new InstructionStore(new Dictionary<>());
+        for (int day = 1; day <= 2000; day++)
+            store.add(getInstruction("entity", getDate(2016, 1, 1).plusDays(day), String.valueOf(day)));
+
+        List<Integer> result = new ArrayList<>();
+        store.forEachByReceivedDate(getDate(2016, 1, 5), getDate(2016, 1, 7), result::add);
+
+        List<Integer> expected = new ArrayList<>();
+        expected.add(3);
+        expected.add(4);
+        expected.add(5);
+
+        assertEquals(expected, result);
+    }
+
+    private void assertInstructions(Instruction result, Instruction expected) {
+        assertEquals(expected.getEntity(), result.getEntity());
+        assertEquals(expected.getInstructionType(), result.getInstructionType());
+        assertEquals(expected.getCurrency(), result.getCurrency());
+        assertEquals(expected.getSettlementDate(), result.getSettlementDate());
+        assertEquals(expected.getExchangeRate(), result.getExchangeRate());
+        assertEquals(expected.getReceivedDate(), result.getReceivedDate());
+        assertEquals(expected.getUnitPrice(), result.getUnitPrice());
+        assertEquals(expected.getUnitQuantity(), result.getUnitQuantity());
+    }
+}
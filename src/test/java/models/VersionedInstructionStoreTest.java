@@ -0,0 +1,117 @@
+package models;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static utils.test.TestUtils.getCurrency;
+import static utils.test.TestUtils.getDate;
+
+public class VersionedInstructionStoreTest {
+
+    private static LocalDate FirstDate = getDate(2016, 1, 1);
+
+    private static Instruction getInstruction(int number) {
+        return new Instruction(
+                "entity " + number % 10,
+                InstructionType.SELL,
+                new BigDecimal("0.50"),
+                getCurrency("SGD"),
+                FirstDate.plusDays(number),
+                FirstDate.plusDays(number + 1),
+                number,
+                BigDecimal.valueOf(number, 2)
+        );
+    }
+
+    private static void assertSnapshot(VersionedInstructionStore.Snapshot snapshot, int size) {
+        InstructionStore instructions = snapshot.getInstructions();
+        assertEquals(size, instructions.size());
+        for (int row = 0; row < instructions.size(); row++) {
+            assertEquals(row, instructions.getUnitQuantity(row));
+            assertEquals(row, instructions.getUnscaledUnitPrice(row));
+            assertEquals(FirstDate.plusDays(row), instructions.getReceivedDate(row));
+        }
+    }
+
+    @Test
+    public void publishSnapshots() {
+        VersionedInstructionStore store = new VersionedInstructionStore(new Dictionary<>());
+        VersionedInstructionStore.Snapshot empty = store.getSnapshot();
+
+        for (int i = 0; i < 10; i++)
+            store.add(getInstruction(i));
+        VersionedInstructionStore.Snapshot first = store.publish();
+        for (int i = 10; i < 5000; i++)
+            store.add(getInstruction(i));
+
+        assertSame(first, store.getSnapshot());
+        assertSnapshot(empty, 0);
+        assertSnapshot(first, 10);
+
+        VersionedInstructionStore.Snapshot second = store.publish();
+        store.reset();
+        store.add(getInstruction(0));
+        VersionedInstructionStore.Snapshot third = store.publish();
+
+        assertEquals(0, empty.getVersion());
+        assertEquals(1, first.getVersion());
+        assertEquals(2, second.getVersion());
+        assertEquals(3, third.getVersion());
+        assertSnapshot(first, 10);
+        assertSnapshot(second, 5000);
+        assertSnapshot(third, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectChangesOfSnapshot() {
+        VersionedInstructionStore store = new VersionedInstructionStore(new Dictionary<>());
+
+        assertTrue(store.getSnapshot().getInstructions().isReadOnly());
+        store.getSnapshot().getInstructions().add(getInstruction(0));
+    }
+
+    @Test
+    public void readSnapshotsWhileIngesting() throws InterruptedException {
+        VersionedInstructionStore store = new VersionedInstructionStore(new Dictionary<>());
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        int batches = 200;
+        int batchSize = 100;
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            readers.add(new Thread(() -> {
+                try {
+                    long version = 0;
+                    while (version < batches) {
+                        VersionedInstructionStore.Snapshot snapshot = store.getSnapshot();
+                        assertTrue(snapshot.getVersion() >= version);
+                        assertSnapshot(snapshot, (int) snapshot.getVersion() * batchSize);
+                        version = snapshot.getVersion();
+                    }
+                } catch (Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            }));
+        readers.forEach(Thread::start);
+
+        for (int batch = 0; batch < batches; batch++) {
+            for (int i = 0; i < batchSize; i++)
+                store.add(getInstruction(batch * batchSize + i));
+            store.publish();
+        }
+        for (Thread reader : readers)
+            reader.join();
+
+        assertNull(error.get());
+        assertSnapshot(store.getSnapshot(), batches * batchSize);
+    }
+}
@@ -0,0 +1,64 @@
+package models.dao;
+
+import csv.CSVAccessorConfig;
+import models.Dictionary;
+import models.VersionedInstructionStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InstructionCSVDAOTest {
+
+    private static String Header = "Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit\n";
+    private static String Row = "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static VersionedInstructionStore.Snapshot awaitSize(VersionedInstructionStore store, int size) throws InterruptedException {
+        for (int i = 0; i < 100 && store.getSnapshot().getInstructions().size() != size; i++)
+            Thread.sleep(50);
+        return store.getSnapshot();
+    }
+
+    @Test
+    public void ingestAppendedInstructions() throws IOException, InterruptedException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), (Header + Row).getBytes(StandardCharsets.UTF_8));
+        Dictionary<String> entities = new Dictionary<>();
+        InstructionCSVDAO instructionCsvDAO = new InstructionCSVDAO(new CSVAccessorConfig(file.getPath()), entities);
+        VersionedInstructionStore store = new VersionedInstructionStore(entities);
+
+        Thread writer = new Thread(() -> {
+            try {
+                instructionCsvDAO.ingest(store, 10, TimeUnit.MILLISECONDS);
+            } catch (IOException | InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+        try {
+            VersionedInstructionStore.Snapshot first = awaitSize(store, 1);
+            Files.write(file.toPath(), (Row + Row).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            VersionedInstructionStore.Snapshot second = awaitSize(store, 3);
+
+            assertEquals(1, first.getInstructions().size());
+            assertEquals(3, second.getInstructions().size());
+            assertTrue(second.getVersion() > first.getVersion());
+            assertEquals("foo", second.getInstructions().getEntity(2));
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package models.dao;
 
+import models.Dictionary;
 import models.Instruction;
 import models.InstructionType;
 import org.junit.Rule;
@@ -12,6 +13,7 @@ import java.util.*;
 
 import static models.dao.InstructionCSVFields.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class InstructionCSVParserTest {
 
@@ -59,6 +61,28 @@ public class InstructionCSVParserTest {
         assertInstructions(result, expected);
     }
 
+    @Test
+    public void parseWithParsedReceivedDate() {
+        LocalDate receivedDate = InstructionCSVParser.parseReceivedDate(validInstructionRecord.get(ReceivedDate));
+
+        Instruction result = InstructionCSVParser.parse(validInstructionRecord, receivedDate);
+
+        assertInstructions(result, InstructionCSVParser.parse(validInstructionRecord));
+    }
+
+    @Test
+    public void parseWithEntitiesDictionary() {
+        Dictionary<String> entities = new Dictionary<>();
+        LocalDate receivedDate = LocalDate.of(2016, 1, 1);
+
+        Instruction first = InstructionCSVParser.parse(getInstructionRecord(Entity, " Singapore"), receivedDate, entities);
+        Instruction second = InstructionCSVParser.parse(getInstructionRecord(Entity, "Singapore "), receivedDate, entities);
+
+        assertEquals(first.getEntityId(), second.getEntityId());
+        assertSame(first.getEntity(), second.getEntity());
+        assertEquals("Singapore", entities.decode(first.getEntityId()));
+    }
+
     @Test
     public void parseWithInvalidUnitPrice() {
         List<Map<String, String>> inputs = new ArrayList<>();
@@ -150,6 +174,13 @@ public class InstructionCSVParserTest {
         });
     }
 
+    @Test
+    public void rejectInvalidDateWithFormatterMessage() {
+        thrown.expect(RuntimeException.class);
+        thrown.expectMessage("Text '32 Jan 2016' could not be parsed: Invalid value for DayOfMonth (valid values 1 - 28/31): 32");
+        InstructionCSVParser.parse(getInstructionRecord(SettlementDate, "32 Jan 2016"));
+    }
+
     private void assertInstructions(Instruction result, Instruction expected) {
         assertEquals(result.getEntity(), expected.getEntity());
         assertEquals(result.getInstructionType(), expected.getInstructionType());
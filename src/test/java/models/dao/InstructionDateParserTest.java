@@ -0,0 +1,105 @@
+package models.dao;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class InstructionDateParserTest {
+
+    private static String parse(DateTimeFormatter formatter, CharSequence value) {
+        try {
+            return LocalDate.parse(value, formatter).toString();
+        } catch (DateTimeParseException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String parse(InstructionDateParser parser, CharSequence value) {
+        try {
+            return parser.parse(value).toString();
+        } catch (DateTimeParseException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static void assertParsedAsFormatter(DateTimeFormatter formatter, List<String> values) {
+        InstructionDateParser parser = new InstructionDateParser(formatter);
+        for (int repeat = 0; repeat < 2; repeat++)
+            for (String value : values)
+                assertEquals(value, parse(formatter, value), parse(parser, value));
+    }
+
+    private static List<String> getValues(DateTimeFormatter formatter) {
+        List<String> values = new ArrayList<>();
+        for (LocalDate date = LocalDate.of(1999, 12, 1); date.getYear() < 2002; date = date.plusDays(1))
+            values.add(date.format(formatter));
+        values.add(LocalDate.of(2000, 2, 29).format(formatter));
+        values.add(LocalDate.of(1, 1, 1).format(formatter));
+        values.add(LocalDate.of(9999, 12, 31).format(formatter));
+
+        Random random = new Random(17);
+        String month = LocalDate.of(2016, 2, 1).format(DateTimeFormatter.ofPattern("MMM", formatter.getLocale()));
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder value = new StringBuilder(LocalDate.of(2016, 1, 1).plusDays(random.nextInt(366)).format(formatter));
+            int position = random.nextInt(value.length());
+            switch (random.nextInt(4)) {
+                case 0: value.deleteCharAt(position); break;
+                case 1: value.insert(position, "0 -+aA".charAt(random.nextInt(6))); break;
+                case 2: value.setCharAt(position, "0239 x".charAt(random.nextInt(6))); break;
+                default: value.replace(0, 2, String.valueOf(random.nextInt(40)));
+            }
+            values.add(value.toString());
+        }
+        values.addAll(Arrays.asList("", "text", "29 " + month + " 2016", "29 " + month + " 2017", "30 " + month + " 2016",
+                "31 " + month + " 2016", "00 " + month + " 2016", "32 " + month + " 2016", "01 " + month + " 0000",
+                "01 " + month + " 12016", "01 " + month + " +12016", " 01 " + month + " 2016", "01 " + month + " 2016 ",
+                "01 " + month.toUpperCase() + " 2016", "1 " + month + " 2016"));
+        return values;
+    }
+
+    @Test
+    public void parseAsFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM yyyy");
+        assertParsedAsFormatter(formatter, getValues(formatter));
+    }
+
+    @Test
+    public void parseAsFormatterOfOtherLocales() {
+        for (Locale locale : Arrays.asList(Locale.ENGLISH, Locale.FRENCH, Locale.GERMAN, Locale.JAPANESE)) {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM yyyy", locale);
+            assertParsedAsFormatter(formatter, getValues(formatter));
+        }
+    }
+
+    @Test
+    public void tryParseAsFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMM yyyy");
+        InstructionDateParser parser = new InstructionDateParser(formatter);
+        for (String value : getValues(formatter)) {
+            LocalDate date = parser.tryParse(value);
+            assertEquals(value, parse(formatter, value), date == null ? parse(parser, value) : date.toString());
+        }
+        assertNull(parser.tryParse(null));
+    }
+
+    @Test
+    public void reuseCachedDates() {
+        InstructionDateParser parser = new InstructionDateParser(DateTimeFormatter.ofPattern("dd MMM yyyy", Locale.ENGLISH));
+
+        LocalDate date = parser.parse("01 Jan 2016");
+
+        assertEquals(LocalDate.of(2016, 1, 1), date);
+        assertSame(date, parser.parse(new StringBuilder("01 Jan 2016")));
+    }
+}
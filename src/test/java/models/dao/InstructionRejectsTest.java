@@ -0,0 +1,98 @@
+package models.dao;
+
+import csv.CSVAccessorConfig;
+import models.Dictionary;
+import models.Instruction;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class InstructionRejectsTest {
+
+    private static String Header = "Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit\n";
+    private static String Row = "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<Instruction> load(InstructionRejects rejects, String... rows) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), (Header + String.join("", rows)).getBytes(StandardCharsets.UTF_8));
+        InstructionCSVDAO instructionCsvDAO = new InstructionCSVDAO(new CSVAccessorConfig(file.getPath()), new Dictionary<>(), rejects);
+        return instructionCsvDAO.getByReceivedDate(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    @Test
+    public void countRejectedRowsByFieldAndReason() throws IOException {
+        InstructionRejects rejects = new InstructionRejects();
+
+        List<Instruction> instructions = load(rejects,
+                Row,
+                " ,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n",
+                "foo,X,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n",
+                "foo,B,0,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n",
+                "foo,B,1e,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n",
+                "foo,B,0.50,XYZ,01 Oct 2016,04 Oct 2016,200,100.25\n",
+                "foo,B,0.50,SGD,2016-10-01,04 Oct 2016,200,100.25\n",
+                "foo,B,0.50,SGD,01 Oct 2016,31 Feb 2016x,200,100.25\n",
+                "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,-200,100.25\n",
+                "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,2147483648,100.25\n",
+                "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,-100.25\n",
+                "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,price\n",
+                Row);
+
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("Entity: empty", 1L);
+        expected.put("Buy/Sell: unsupported", 1L);
+        expected.put("AgreedFx: not a number", 1L);
+        expected.put("AgreedFx: not positive", 1L);
+        expected.put("Currency: unsupported", 1L);
+        expected.put("InstructionDate: not a date", 1L);
+        expected.put("SettlementDate: not a date", 1L);
+        expected.put("Units: not a number", 1L);
+        expected.put("Units: negative", 1L);
+        expected.put("Price per unit: not a number", 1L);
+        expected.put("Price per unit: negative", 1L);
+
+        assertEquals(2, instructions.size());
+        assertEquals(11, rejects.getCount());
+        assertEquals(expected, rejects.getCounts());
+    }
+
+    @Test
+    public void countFirstErrorOfRow() throws IOException {
+        InstructionRejects rejects = new InstructionRejects();
+
+        load(rejects, "foo,X,0,SGD,01 Oct 2016,04 Oct 2016,-1,100.25\n");
+
+        assertEquals(1, rejects.getCount());
+        assertEquals(1L, (long) rejects.getCounts().get("Buy/Sell: unsupported"));
+    }
+
+    @Test
+    public void writeRejectedRowsToRejectFile() throws IOException {
+        Path rejectFile = folder.getRoot().toPath().resolve("rejects.csv");
+        InstructionRejects rejects = new InstructionRejects(rejectFile);
+
+        load(rejects, Row, "\"foo, bar\",B,0.50,SGD,01 Oct 2016,04 Oct 2016,-200,100.25\n", Row);
+        rejects.close();
+
+        assertEquals(Arrays.asList(
+                "Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit,Error",
+                "\"foo, bar\",B,0.50,SGD,01 Oct 2016,04 Oct 2016,-200,100.25,Instruction's value '-200' is expected to be a positive number"
+        ), Files.readAllLines(rejectFile, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package models.dao;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import models.InstructionType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static utils.test.TestUtils.getCurrency;
+import static utils.test.TestUtils.getDate;
+
+public class InstructionSnapshotDAOTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Instruction getInstruction(String entity, LocalDate receivedDate, String unitPrice, String currency) {
+        return new Instruction(
+                entity,
+                InstructionType.BUY,
+                new BigDecimal("0.22"),
+                getCurrency(currency),
+                receivedDate,
+                receivedDate.plusDays(2),
+                450,
+                new BigDecimal(unitPrice)
+        );
+    }
+
+    private Path writeSnapshot(InstructionStore instructions) throws IOException {
+        Path snapshotPath = folder.getRoot().toPath().resolve("instructions.bin");
+        InstructionSnapshotWriter.write(instructions, snapshotPath);
+        return snapshotPath;
+    }
+
+    @Test
+    public void readByReceivedDate() throws IOException {
+        InstructionStore instructions = new InstructionStore(new Dictionary<>());
+        instructions.add(getInstruction("Riyadh", getDate(2016, 3, 5), "150.5", "SAR"));
+        instructions.add(getInstruction("Abu Dhabi", getDate(2016, 1, 5), "0.0001", "AED"));
+        instructions.add(getInstruction("Helsinki", getDate(2016, 2, 5), "10.95", "EUR"));
+        instructions.add(getInstruction("Abu Dhabi", getDate(2016, 2, 6), "200", "AED"));
+
+        Dictionary<String> entities = new Dictionary<>();
+        entities.encode("Moscow");
+        InstructionSnapshotDAO dao = new InstructionSnapshotDAO(writeSnapshot(instructions), entities);
+
+        List<Instruction> result = dao.getByReceivedDate(getDate(2016, 2, 1), getDate(2016, 3, 5));
+
+        assertEquals(3, result.size());
+        assertInstructions(result.get(0), instructions.get(2));
+        assertInstructions(result.get(1), instructions.get(3));
+        assertInstructions(result.get(2), instructions.get(0));
+        assertEquals(entities.encode("Helsinki"), result.get(0).getEntityId());
+    }
+
+    @Test
+    public void deleteTemporaryFileOfFailedSnapshot() throws IOException {
+        char[] name = new char[0x10000];
+        Arrays.fill(name, 'a');
+        InstructionStore instructions = new InstructionStore(new Dictionary<>());
+        instructions.add(getInstruction(new String(name), getDate(2016, 2, 5), "10.95", "EUR"));
+
+        try {
+            writeSnapshot(instructions);
+            fail("A too long entity name is expected to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, folder.getRoot().list().length);
+        }
+    }
+
+    @Test
+    public void loadSnapshot() throws IOException {
+        InstructionStore instructions = new InstructionStore(new Dictionary<>());
+        instructions.add(getInstruction("Helsinki", getDate(2016, 2, 5), "10.95", "EUR"));
+        instructions.add(getInstruction("Singapore", getDate(2016, 1, 5), "100.25", "SGD"));
+
+        InstructionStore result = new InstructionSnapshotDAO(writeSnapshot(instructions), new Dictionary<>()).load();
+
+        assertEquals(2, result.size());
+        assertInstructions(result.get(0), instructions.get(1));
+        assertInstructions(result.get(1), instructions.get(0));
+    }
+
+    @Test
+    public void loadValuesWhichDontFitRecord() throws IOException {
+        InstructionStore instructions = new InstructionStore(new Dictionary<>());
+        instructions.add(getInstruction("Helsinki", getDate(2016, 2, 5), "1234567890.123456789", "EUR"));
+        instructions.add(getInstruction("Singapore", getDate(2016, 1, 5), "100.25", "SGD"));
+
+        Path snapshotPath = writeSnapshot(instructions);
+        InstructionStore result = new InstructionSnapshotDAO(snapshotPath, new Dictionary<>()).load();
+        List<Instruction> read = new InstructionSnapshotDAO(snapshotPath, new Dictionary<>())
+                .getByReceivedDate(getDate(2016, 2, 1), getDate(2016, 2, 5));
+
+        assertEquals(2, result.size());
+        assertInstructions(result.get(0), instructions.get(1));
+        assertInstructions(result.get(1), instructions.get(0));
+        assertInstructions(read.get(0), instructions.get(0));
+        assertTrue(InstructionSnapshotDAO.isSnapshot(snapshotPath));
+    }
+
+    @Test
+    public void readMissingSnapshot() {
+        InstructionSnapshotDAO dao = new InstructionSnapshotDAO(folder.getRoot().toPath().resolve("missing.bin"), new Dictionary<>());
+
+        assertEquals(0, dao.getByReceivedDate(LocalDate.MIN, LocalDate.MAX).size());
+    }
+
+    private void assertInstructions(Instruction result, Instruction expected) {
+        assertEquals(expected.getEntity(), result.getEntity());
+        assertEquals(expected.getInstructionType(), result.getInstructionType());
+        assertEquals(expected.getCurrency(), result.getCurrency());
+        assertEquals(expected.getSettlementDate(), result.getSettlementDate());
+        assertEquals(expected.getExchangeRate(), result.getExchangeRate());
+        assertEquals(expected.getReceivedDate(), result.getReceivedDate());
+        assertEquals(expected.getUnitPrice(), result.getUnitPrice());
+        assertEquals(expected.getUnitQuantity(), result.getUnitQuantity());
+    }
+}
@@ -5,10 +5,9 @@ import models.InstructionType;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Currency;
-import java.util.List;
+import java.util.*;
 
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
@@ -127,4 +126,43 @@ public class SettlementDateCalculatorTest {
 
         assertEquals(expected, result);
     }
+
+    @Test
+    public void calculateSettlementDateWithConfiguredWeekend() {
+        Map<Currency, Set<DayOfWeek>> weekends = new HashMap<>();
+        weekends.put(getCurrency("ILS"), EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+
+        SettlementDateCalculator calculator = new SettlementDateCalculator(EnumSet.of(DayOfWeek.SUNDAY), weekends);
+
+        List<Instruction> input = new ArrayList<>();
+
+        input.add(getInstruction(getDate(2016, 2, 5), getCurrency("ILS")));
+        input.add(getInstruction(getDate(2016, 2, 6), getCurrency("EUR")));
+        input.add(getInstruction(getDate(2016, 2, 7), getCurrency("EUR")));
+
+        List<LocalDate> expected = new ArrayList<>();
+
+        expected.add(getDate(2016, 2, 8));
+        expected.add(getDate(2016, 2, 6));
+        expected.add(getDate(2016, 2, 8));
+
+        List<LocalDate> result = input.stream().map(calculator::calculate).collect(toList());
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void calculateSettlementEpochDay() {
+        LocalDate receivedDate = getDate(2016, 2, 1);
+        for (int day = 0; day < 14; day++) {
+            LocalDate settlementDate = receivedDate.plusDays(day - 3);
+            for (Currency currency : Arrays.asList(getCurrency("EUR"), getShiftedCurrency(0))) {
+                LocalDate expected = settlementDateCalculator.calculate(settlementDate, receivedDate, currency);
+
+                long result = settlementDateCalculator.calculate(settlementDate.toEpochDay(), receivedDate.toEpochDay(), currency);
+
+                assertEquals(expected.toEpochDay(), result);
+            }
+        }
+    }
 }
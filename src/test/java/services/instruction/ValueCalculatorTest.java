@@ -97,4 +97,48 @@ public class ValueCalculatorTest {
 
         assertEquals(result.compareTo(expected), 0);
     }
+
+    @Test
+    public void calculateTotalAmountWithSameScale() {
+        List<Instruction> input = new ArrayList<>();
+
+        input.add(getInstruction(100.25d, 200, 0.5d));
+        input.add(getInstruction(2.5d, 4, 2d));
+        input.add(getInstruction(0d, 3));
+
+        BigDecimal expected = new BigDecimal("10045");
+
+        BigDecimal result = valueCalculator.calculate(input);
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void calculateTotalAmountWithFixedPointOverflow() {
+        List<Instruction> input = new ArrayList<>();
+
+        input.add(getInstruction(92233720368.5477d, Integer.MAX_VALUE, 1.1d));
+        input.add(getInstruction(92233720368.5477d, Integer.MAX_VALUE, 1.1d));
+        input.add(getInstruction(0.01d));
+
+        BigDecimal expected = new BigDecimal("435754893625539397556.82618");
+
+        BigDecimal result = valueCalculator.calculate(input);
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void calculateTotalAmountWithScaleAboveFixedPointScale() {
+        List<Instruction> input = new ArrayList<>();
+
+        input.add(getInstruction(1.005d, 2, 1.5d));
+        input.add(getInstruction(10.2d));
+
+        BigDecimal expected = new BigDecimal("13.215");
+
+        BigDecimal result = new ValueCalculator(2).calculate(input);
+
+        assertEquals(expected, result);
+    }
 }
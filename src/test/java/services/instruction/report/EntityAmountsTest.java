@@ -0,0 +1,142 @@
+package services.instruction.report;
+
+import org.junit.Test;
+import services.instruction.ValueCalculator;
+import services.instruction.ValueSum;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static utils.data.MapUtils.zipWithTopRankByValue;
+
+public class EntityAmountsTest {
+
+    private static ValueCalculator valueCalculator = new ValueCalculator();
+
+    private static ValueSum getAmount(Random random) {
+        ValueSum amount = valueCalculator.newSum();
+        if (random.nextInt(200) == 0)
+            return amount.add(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(random.nextInt(10) + 1)));
+        return amount.add(random.nextInt(1000), random.nextInt(4));
+    }
+
+    private static Map<Integer, BigDecimal> add(EntityAmounts amounts, Map<Integer, ValueSum> expected, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            int entityId = random.nextInt(500) * 4099;
+            ValueSum amount = getAmount(random);
+            amounts.add(entityId, amount);
+            expected.computeIfAbsent(entityId, id -> valueCalculator.newSum()).add(amount);
+        }
+        Map<Integer, BigDecimal> result = new HashMap<>();
+        expected.forEach((entityId, amount) -> result.put(entityId, amount.toBigDecimal()));
+        return result;
+    }
+
+    private static Map<Integer, Integer> rankByIds(Map<Integer, BigDecimal> amounts, int rankLimit) {
+        List<Map.Entry<Integer, BigDecimal>> entries = new ArrayList<>(amounts.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+        Map<Integer, BigDecimal> byIds = new LinkedHashMap<>();
+        entries.forEach(entry -> byIds.put(entry.getKey(), entry.getValue()));
+        return zipWithTopRankByValue(byIds, rankLimit);
+    }
+
+    @Test
+    public void sumAmountsOfEntities() {
+        EntityAmounts amounts = new EntityAmounts(valueCalculator);
+
+        Map<Integer, BigDecimal> expected = add(amounts, new HashMap<>(), 20000, new Random(3));
+
+        assertEquals(expected.size(), amounts.size());
+        assertEquals(expected, amounts.toAmounts());
+    }
+
+    @Test
+    public void mergeAmountsOfEntities() {
+        Random random = new Random(5);
+        Map<Integer, ValueSum> sums = new HashMap<>();
+        EntityAmounts first = new EntityAmounts(valueCalculator);
+        EntityAmounts second = new EntityAmounts(valueCalculator);
+        add(first, sums, 5000, random);
+        Map<Integer, BigDecimal> expected = add(second, sums, 5000, random);
+
+        assertEquals(expected, first.merge(second).toAmounts());
+    }
+
+    @Test
+    public void rankAsRankingOfMap() {
+        EntityAmounts amounts = new EntityAmounts(valueCalculator);
+        Map<Integer, BigDecimal> expected = add(amounts, new HashMap<>(), 3000, new Random(7));
+
+        for (int rankLimit : new int[]{0, 1, 10, 100, 1000}) {
+            assertEquals(new ArrayList<>(rankByIds(expected, rankLimit).entrySet()), new ArrayList<>(amounts.rank(rankLimit).entrySet()));
+        }
+    }
+
+    @Test
+    public void rankTiedAmountsByIds() {
+        EntityAmounts amounts = new EntityAmounts(valueCalculator);
+        for (int entityId : new int[]{9, 3, 7, 1})
+            amounts.add(entityId, valueCalculator.newSum().add(entityId == 7 ? 10 : 5, 0));
+
+        Map<Integer, Integer> expected = new LinkedHashMap<>();
+        expected.put(7, 1);
+        expected.put(1, 2);
+        expected.put(3, 2);
+        expected.put(9, 2);
+
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(amounts.rank(2).entrySet()));
+    }
+
+    @Test
+    public void sumAmountsAcrossSegments() {
+        int segmentShift = EntityAmounts.SegmentShift;
+        EntityAmounts.SegmentShift = 4;
+        try {
+            EntityAmounts amounts = new EntityAmounts(valueCalculator);
+            Map<Integer, BigDecimal> expected = add(amounts, new HashMap<>(), 20000, new Random(11));
+
+            assertEquals(expected, amounts.toAmounts());
+            assertEquals(new ArrayList<>(rankByIds(expected, 100).entrySet()), new ArrayList<>(amounts.rank(100).entrySet()));
+        } finally {
+            EntityAmounts.SegmentShift = segmentShift;
+        }
+    }
+
+    @Test
+    public void failAboveMaxCapacity() {
+        int maxCapacity = EntityAmounts.MaxCapacity;
+        EntityAmounts.MaxCapacity = 256;
+        try {
+            EntityAmounts amounts = new EntityAmounts(valueCalculator);
+            for (int entityId = 0; entityId < 128; entityId++)
+                amounts.add(entityId, valueCalculator.newSum().add(1, 0));
+            assertEquals(128, amounts.size());
+
+            amounts.add(128, valueCalculator.newSum().add(1, 0));
+            fail("An entity above the limit is expected to be rejected");
+        } catch (IllegalStateException e) {
+            assertEquals("Amounts of more than 128 entities can't be kept", e.getMessage());
+        } finally {
+            EntityAmounts.MaxCapacity = maxCapacity;
+        }
+    }
+
+    @Test
+    public void releaseAmounts() {
+        EntityAmounts amounts = new EntityAmounts(valueCalculator);
+        add(amounts, new HashMap<>(), 1000, new Random(13));
+
+        amounts.release();
+
+        assertEquals(0, amounts.size());
+        assertEquals(new HashMap<>(), amounts.toAmounts());
+        assertEquals(new LinkedHashMap<>(), amounts.rank(10));
+    }
+}
@@ -0,0 +1,164 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionType;
+import org.junit.Test;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static utils.test.TestUtils.getDate;
+
+public class EntitySketchTest {
+
+    private static ValueCalculator valueCalculator = new ValueCalculator();
+    private static SettlementDateCalculator settlementDateCalculator = new SettlementDateCalculator();
+
+    private static int[] getEntityIds(int count, int entities, Random random) {
+        int[] entityIds = new int[count];
+        for (int i = 0; i < count; i++)
+            entityIds[i] = (int) Math.floor(Math.pow(entities, random.nextDouble())) - 1;
+        return entityIds;
+    }
+
+    private static void assertBounds(EntitySketch sketch, Map<Integer, Double> amounts, double total, int capacity) {
+        assertTrue(sketch.getThreshold() <= total / capacity * (1 + 1e-9));
+        amounts.forEach((entityId, amount) -> {
+            double estimate = sketch.getEstimate(entityId);
+            assertTrue(estimate >= amount);
+            assertTrue(estimate - amount <= sketch.getError(entityId) + estimate * 1e-9);
+            if (amount > sketch.getThreshold())
+                assertTrue(sketch.toEstimates().containsKey((long) entityId));
+        });
+    }
+
+    @Test
+    public void boundErrorsOfEstimates() {
+        Random random = new Random(11);
+        int capacity = 50;
+        EntitySketch sketch = new EntitySketch(capacity);
+        Map<Integer, Double> amounts = new HashMap<>();
+        double total = 0;
+        for (int entityId : getEntityIds(20000, 5000, random)) {
+            double amount = random.nextInt(1000) / 10d;
+            sketch.add(entityId, amount);
+            amounts.merge(entityId, amount, Double::sum);
+            total += amount;
+        }
+
+        assertEquals(capacity, sketch.size());
+        assertTrue(sketch.isTruncated());
+        assertBounds(sketch, amounts, total, capacity);
+    }
+
+    @Test
+    public void boundErrorsOfMergedEstimates() {
+        Random random = new Random(13);
+        int capacity = 40;
+        EntitySketch[] sketches = {new EntitySketch(capacity), new EntitySketch(capacity), new EntitySketch(capacity)};
+        Map<Integer, Double> amounts = new HashMap<>();
+        double total = 0;
+        int i = 0;
+        for (int entityId : getEntityIds(15000, 3000, random)) {
+            double amount = random.nextInt(1000);
+            sketches[i++ % sketches.length].add(entityId, amount);
+            amounts.merge(entityId, amount, Double::sum);
+            total += amount;
+        }
+
+        EntitySketch sketch = new EntitySketch(capacity).merge(sketches[0]).merge(sketches[1]).merge(sketches[2]);
+
+        assertEquals(capacity, sketch.size());
+        assertBounds(sketch, amounts, total, capacity);
+    }
+
+    @Test
+    public void keepAllEntitiesUnderCapacity() {
+        EntitySketch sketch = new EntitySketch(4);
+        sketch.add(7, 1);
+        sketch.add(3, 2);
+        sketch.add(7, 3);
+
+        assertEquals(2, sketch.size());
+        assertEquals(0, sketch.getThreshold(), 0);
+        assertEquals(4, sketch.getEstimate(7), 1e-9);
+        assertEquals(2, sketch.getEstimate(3), 1e-9);
+    }
+
+    private static List<Instruction> getInstructions(int count, Random random) {
+        List<Instruction> instructions = new ArrayList<>();
+        LocalDate date = getDate(2016, 1, 4);
+        for (int entityId : getEntityIds(count, 2000, random))
+            instructions.add(new Instruction(
+                    "entity " + entityId,
+                    random.nextBoolean() ? InstructionType.BUY : InstructionType.SELL,
+                    BigDecimal.valueOf(random.nextInt(200) + 1, 2),
+                    Currency.getInstance("USD"),
+                    date,
+                    date,
+                    random.nextInt(100) + 1,
+                    BigDecimal.valueOf(random.nextInt(100000), 2)));
+        return instructions;
+    }
+
+    private static Map<InstructionType, Map<Integer, Integer>> rank(List<Instruction> instructions, Dictionary<String> entities, int sketchCapacity) {
+        ReportAggregator aggregator = instructions.stream().collect(
+                ReportAggregator.collector(settlementDateCalculator, valueCalculator, entities, sketchCapacity));
+        aggregator.confirm(instructions.stream().collect(
+                EntityConfirmation.collector(aggregator.getCandidates(), valueCalculator)));
+        return aggregator.getAmountRankByTypeAndEntity();
+    }
+
+    @Test
+    public void rankConfirmedEntitiesAsExactRanking() {
+        Dictionary<String> entities = new Dictionary<>();
+        List<Instruction> instructions = getInstructions(20000, new Random(17));
+        Map<InstructionType, Map<Integer, Integer>> expected = instructions.stream()
+                .collect(ReportAggregator.collector(settlementDateCalculator, valueCalculator, entities))
+                .getAmountRankByTypeAndEntity();
+
+        Map<InstructionType, Map<Integer, Integer>> result = rank(instructions, entities, 100);
+
+        for (InstructionType instructionType : expected.keySet()) {
+            Map<Integer, Integer> ranks = result.get(instructionType);
+            assertTrue(ranks.size() > 10 && ranks.size() < 100);
+            Map<Integer, Integer> top = new LinkedHashMap<>();
+            expected.get(instructionType).entrySet().stream().limit(ranks.size()).forEach(e -> top.put(e.getKey(), e.getValue()));
+            assertEquals(top, ranks);
+        }
+    }
+
+    @Test
+    public void rankAllEntitiesUnderCapacity() {
+        Dictionary<String> entities = new Dictionary<>();
+        List<Instruction> instructions = getInstructions(5000, new Random(19));
+        Map<InstructionType, Map<Integer, Integer>> expected = instructions.stream()
+                .collect(ReportAggregator.collector(settlementDateCalculator, valueCalculator, entities))
+                .getAmountRankByTypeAndEntity();
+
+        assertEquals(expected, rank(instructions, entities, 5000));
+    }
+
+    @Test
+    public void encodeOnlyConfirmedEntities() {
+        Dictionary<String> entities = new Dictionary<>();
+        List<Instruction> instructions = getInstructions(20000, new Random(23));
+
+        Map<InstructionType, Map<Integer, Integer>> result = rank(instructions, entities, 100);
+
+        assertEquals(result.values().stream().flatMap(ranks -> ranks.keySet().stream()).distinct().count(), entities.size());
+        assertTrue(entities.size() > 10 && entities.size() < 200);
+    }
+}
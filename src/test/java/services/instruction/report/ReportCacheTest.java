@@ -0,0 +1,96 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+import utils.FileVersion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static utils.test.TestUtils.getDate;
+
+public class ReportCacheTest {
+
+    private static LocalDate Start = getDate(2016, 1, 1);
+    private static LocalDate End = getDate(2016, 12, 31);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AtomicInteger calculations = new AtomicInteger();
+
+    private Supplier<Report> calculator() {
+        return () -> {
+            calculations.incrementAndGet();
+            return new Report(new ReportAggregator(new SettlementDateCalculator(), new ValueCalculator(), new Dictionary<>()), ReportService.NoRankLimit);
+        };
+    }
+
+    private FileVersion createVersion(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(Charset.forName("UTF-8")));
+        return FileVersion.of(file.toPath());
+    }
+
+    @Test
+    public void getCachedReport() throws IOException {
+        ReportCache reportCache = new ReportCache(2);
+        FileVersion version = createVersion("a");
+
+        Report report = reportCache.get(Start, End, version, calculator());
+
+        assertSame(report, reportCache.get(Start, End, version, calculator()));
+        assertEquals(1, calculations.get());
+        assertEquals(1, reportCache.getHits());
+        assertEquals(1, reportCache.getMisses());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedReport() throws IOException {
+        ReportCache reportCache = new ReportCache(2);
+        FileVersion version = createVersion("a");
+
+        reportCache.get(Start, End, version, calculator());
+        reportCache.get(Start, Start, version, calculator());
+        reportCache.get(Start, End, version, calculator());
+        reportCache.get(End, End, version, calculator());
+        reportCache.get(Start, End, version, calculator());
+        reportCache.get(Start, Start, version, calculator());
+
+        assertEquals(4, calculations.get());
+        assertEquals(2, reportCache.getHits());
+        assertEquals(2, reportCache.size());
+    }
+
+    @Test
+    public void invalidateReportsOfChangedFile() throws IOException {
+        ReportCache reportCache = new ReportCache(2);
+        File file = folder.newFile();
+        Files.write(file.toPath(), "a,1\n".getBytes(Charset.forName("UTF-8")));
+        FileVersion version = FileVersion.of(file.toPath());
+
+        reportCache.get(Start, End, version, calculator());
+        reportCache.get(Start, Start, version, calculator());
+
+        Files.write(file.toPath(), "b,2\n".getBytes(Charset.forName("UTF-8")));
+        FileVersion changedVersion = FileVersion.of(file.toPath());
+        reportCache.get(Start, End, changedVersion, calculator());
+
+        assertNotEquals(version, changedVersion);
+        assertEquals(3, calculations.get());
+        assertEquals(0, reportCache.getHits());
+        assertEquals(1, reportCache.size());
+    }
+}
@@ -0,0 +1,92 @@
+package services.instruction.report;
+
+import models.Dictionary;
+import models.Instruction;
+import models.InstructionStore;
+import models.InstructionType;
+import org.junit.Test;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static utils.test.TestUtils.getDate;
+
+public class ReportIndexTest {
+
+    private static ValueCalculator valueCalculator = new ValueCalculator();
+    private static SettlementDateCalculator settlementDateCalculator = new SettlementDateCalculator();
+
+    private static LocalDate FirstDate = getDate(2016, 1, 1);
+
+    private static List<Instruction> getInstructions(int count) {
+        Random random = new Random(7);
+        List<Instruction> instructions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LocalDate receivedDate = FirstDate.plusDays(random.nextInt(60));
+            instructions.add(new Instruction(
+                    "entity " + random.nextInt(10),
+                    random.nextBoolean() ? InstructionType.BUY : InstructionType.SELL,
+                    BigDecimal.valueOf(random.nextInt(200) + 1, random.nextInt(3)),
+                    Currency.getInstance(random.nextBoolean() ? "USD" : "AED"),
+                    receivedDate,
+                    receivedDate.plusDays(random.nextInt(5)),
+                    random.nextInt(100) + 1,
+                    BigDecimal.valueOf(random.nextInt(100000), random.nextInt(4))
+            ));
+        }
+        return instructions;
+    }
+
+    private static ReportAggregator aggregate(List<Instruction> instructions, Dictionary<String> entities, LocalDate start, LocalDate end) {
+        ReportAggregator aggregator = new ReportAggregator(settlementDateCalculator, valueCalculator, entities);
+        instructions.stream()
+                .filter(i -> !i.getReceivedDate().isBefore(start) && !i.getReceivedDate().isAfter(end))
+                .forEach(aggregator::add);
+        return aggregator;
+    }
+
+    private static void assertAggregates(ReportAggregator expected, ReportAggregator result) {
+        assertEquals(expected.getAmountByDateAndType(), result.getAmountByDateAndType());
+        assertEquals(expected.getAmountRankByTypeAndEntity(), result.getAmountRankByTypeAndEntity());
+    }
+
+    @Test
+    public void aggregateRangesOfIndex() {
+        Dictionary<String> entities = new Dictionary<>();
+        List<Instruction> instructions = getInstructions(2000);
+        ReportIndex index = instructions.stream()
+                .collect(ReportIndex.collector(settlementDateCalculator, valueCalculator, entities));
+
+        for (int start = -5; start < 65; start += 7)
+            for (int end = start; end < 70; end += 11) {
+                LocalDate startDate = FirstDate.plusDays(start);
+                LocalDate endDate = FirstDate.plusDays(end);
+                assertAggregates(aggregate(instructions, entities, startDate, endDate), index.aggregate(startDate, endDate));
+            }
+
+        assertEquals(60, index.size());
+    }
+
+    @Test
+    public void aggregateRangesOfIndexOfStore() {
+        Dictionary<String> entities = new Dictionary<>();
+        List<Instruction> instructions = getInstructions(2000);
+        InstructionStore store = new InstructionStore(entities);
+        instructions.forEach(store::add);
+        ReportIndex index = ReportIndex.build(store, settlementDateCalculator, valueCalculator);
+
+        LocalDate startDate = FirstDate.plusDays(10);
+        LocalDate endDate = FirstDate.plusDays(20);
+
+        assertAggregates(aggregate(instructions, entities, startDate, endDate), index.aggregate(startDate, endDate));
+        assertAggregates(aggregate(instructions, entities, LocalDate.MIN, LocalDate.MAX), index.aggregate(LocalDate.MIN, LocalDate.MAX));
+        assertAggregates(aggregate(instructions, entities, endDate, startDate), index.aggregate(endDate, startDate));
+    }
+}
@@ -0,0 +1,155 @@
+package services.instruction.report;
+
+import csv.CSVAccessorConfig;
+import models.Dictionary;
+import models.Instruction;
+import models.dao.InstructionCSVDAO;
+import models.dao.InstructionDAO;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import services.instruction.SettlementDateCalculator;
+import services.instruction.ValueCalculator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReportServerTest {
+
+    private static String Header = "Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String get(ReportServer reportServer, String query, String method, int status) throws IOException {
+        return get(reportServer, ReportServer.ReportPath, query, method, status);
+    }
+
+    private static String get(ReportServer reportServer, String path, String query, String method, int status) throws IOException {
+        URL url = new URL("http://localhost:" + reportServer.getAddress().getPort() + path + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        assertEquals(status, connection.getResponseCode());
+        assertEquals("application/json; charset=utf-8", connection.getContentType());
+        try (InputStream input = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) >= 0)
+                output.write(buffer, 0, read);
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String getJson(String settlementDate, String amount, String entity) throws IOException {
+        StringWriter writer = new StringWriter();
+        ReportJsonSink sink = new ReportJsonSink(writer);
+        sink.startAmounts();
+        if (settlementDate != null)
+            writer.write("{\"settlementDate\":\"" + settlementDate + "\",\"amounts\":{\"B\":" + amount + ",\"S\":0}}");
+        sink.endAmounts();
+        if (entity != null)
+            writer.write("\"B\":[{\"entity\":\"" + entity + "\",\"rank\":1}]");
+        sink.flush();
+        return writer.toString();
+    }
+
+    @Test
+    public void serveReports() throws IOException {
+        File file = folder.newFile("instructions.csv");
+        Files.write(file.toPath(), (Header + "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n").getBytes(StandardCharsets.UTF_8));
+        Dictionary<String> entities = new Dictionary<>();
+        ReportService reportService = new ReportService(new SettlementDateCalculator(), new ValueCalculator(),
+                new InstructionCSVDAO(new CSVAccessorConfig(file.getPath()), entities), entities);
+
+        try (ReportServer reportServer = new ReportServer(reportService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, TimeUnit.HOURS)) {
+            reportServer.start();
+
+            assertEquals(getJson("2016-10-04", "10025", "foo"), get(reportServer, "", "GET", 200));
+            assertEquals(getJson("2016-10-04", "10025", "foo"), get(reportServer, "?start=2016-10-01&end=2016-10-01", "GET", 200));
+            assertEquals(getJson(null, null, null), get(reportServer, "?start=2016-10-02", "GET", 200));
+
+            Files.write(file.toPath(), (Header + "bar,B,1,USD,01 Oct 2016,03 Oct 2016,1,2.5\n").getBytes(StandardCharsets.UTF_8));
+            reportServer.reload();
+
+            assertEquals(getJson("2016-10-03", "2.5", "bar"), get(reportServer, "", "GET", 200));
+        }
+    }
+
+    @Test
+    public void rejectInvalidRequests() throws IOException {
+        File file = folder.newFile("instructions.csv");
+        Files.write(file.toPath(), Header.getBytes(StandardCharsets.UTF_8));
+        Dictionary<String> entities = new Dictionary<>();
+        ReportService reportService = new ReportService(new SettlementDateCalculator(), new ValueCalculator(),
+                new InstructionCSVDAO(new CSVAccessorConfig(file.getPath()), entities), entities);
+
+        try (ReportServer reportServer = new ReportServer(reportService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, TimeUnit.HOURS)) {
+            reportServer.start();
+
+            assertEquals("{\"error\":\"Parameter start '01 Oct 2016' isn't a date of yyyy-MM-dd format\"}\n",
+                    get(reportServer, "?start=01+Oct+2016", "GET", 400));
+            assertEquals("{\"error\":\"Method POST isn't allowed\"}\n", get(reportServer, "", "POST", 405));
+            assertEquals("{\"error\":\"Path /reports isn't found\"}\n", get(reportServer, "/reports", "", "GET", 404));
+            assertEquals("{\"error\":\"Path /report/2016 isn't found\"}\n", get(reportServer, "/report/2016", "", "GET", 404));
+        }
+    }
+
+    @Test
+    public void answerUnavailableUntilLoaded() throws IOException {
+        InstructionDAO instructionDAO = mock(InstructionDAO.class);
+        when(instructionDAO.getVersion()).thenReturn(Optional.empty());
+        when(instructionDAO.collectByReceivedDate(any(), any(), any())).thenThrow(new IllegalStateException("Can't read instructions"));
+        Dictionary<String> entities = new Dictionary<>();
+        ReportService reportService = new ReportService(new SettlementDateCalculator(), new ValueCalculator(), instructionDAO, entities);
+
+        try (ReportServer reportServer = new ReportServer(reportService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, TimeUnit.HOURS)) {
+            reportServer.start();
+
+            assertEquals("{\"error\":\"Instructions aren't loaded yet\"}\n", get(reportServer, "", "GET", 503));
+        }
+    }
+
+    @Test
+    public void loadUnversionedInstructionsOnce() throws IOException {
+        InstructionDAO instructionDAO = mock(InstructionDAO.class);
+        when(instructionDAO.getVersion()).thenReturn(Optional.empty());
+        when(instructionDAO.collectByReceivedDate(any(), any(), any())).thenAnswer(invocation ->
+                Stream.<Instruction>empty().collect(invocation.<Collector<Instruction, ?, ?>>getArgument(2)));
+        Dictionary<String> entities = new Dictionary<>();
+        ReportService reportService = new ReportService(new SettlementDateCalculator(), new ValueCalculator(), instructionDAO, entities);
+
+        try (ReportServer reportServer = new ReportServer(reportService,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, TimeUnit.HOURS)) {
+            reportServer.start();
+            reportServer.reload();
+            reportServer.reload();
+
+            verify(instructionDAO, times(1)).collectByReceivedDate(any(), any(), any());
+            assertEquals(getJson(null, null, null), get(reportServer, "", "GET", 200));
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package services.instruction.report;
 
+import csv.CSVAccessorConfig;
+import models.Dictionary;
 import models.Instruction;
 import models.InstructionType;
 import models.dao.InstructionCSVDAO;
+import models.dao.InstructionRejects;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import services.instruction.SettlementDateCalculator;
 import services.instruction.ValueCalculator;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -17,15 +27,20 @@ import static utils.test.TestUtils.getDate;
 
 public class ReportServiceTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private static ValueCalculator valueCalculator = new ValueCalculator();
     private static SettlementDateCalculator settlementDateCalculator = new SettlementDateCalculator();
 
     private static InstructionCSVDAO instructionCsvDAO = mock(InstructionCSVDAO.class);
+    private static Dictionary<String> entities = new Dictionary<>();
 
     private static services.instruction.report.ReportService reportService = new services.instruction.report.ReportService(
             settlementDateCalculator,
             valueCalculator,
-            instructionCsvDAO);
+            instructionCsvDAO,
+            entities);
 
     private static Instruction getInstruction(String entity, LocalDate settlementDate, LocalDate receivedDate, InstructionType instructionType, double price, double exchangeRate, int unitQuantity) {
         return new Instruction(
@@ -194,20 +209,70 @@ public class ReportServiceTest {
 
         Map result = reportService.calcAmountRankByTypeAndEntity(input);
 
-        Map<InstructionType, Map<String, Integer>> expected = new HashMap<>();
+        Map<InstructionType, Map<Integer, Integer>> expected = new HashMap<>();
+
+        Map<Integer, Integer> type_1 = new LinkedHashMap<>();
+        type_1.put(entities.encode("second"), 1);
+        type_1.put(entities.encode("first"), 2);
+
+        Map<Integer, Integer> type_2 = new LinkedHashMap<>();
+        type_2.put(entities.encode("second"), 1);
+        type_2.put(entities.encode("third"), 2);
+        type_2.put(entities.encode("fourth"), 2);
+
+        expected.put(InstructionType.BUY, type_1);
+        expected.put(InstructionType.SELL, type_2);
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void calcTopAmountRankByTypeAndEntity() {
+
+        List<Instruction> input = new ArrayList<>();
+
+        input.add(getInstruction("first", InstructionType.BUY, 2.453d));
+        input.add(getInstruction("second", InstructionType.BUY, 234.567d));
+        input.add(getInstruction("fourth", InstructionType.SELL, 23.56d, 1.0d));
+        input.add(getInstruction("second", InstructionType.SELL, 100.7d, 4));
+        input.add(getInstruction("third", InstructionType.SELL, 23.56d));
+        input.add(getInstruction("fifth", InstructionType.SELL, 3.5d));
+
+        Map result = reportService.calcAmountRankByTypeAndEntity(input, 2);
+
+        Map<InstructionType, Map<Integer, Integer>> expected = new HashMap<>();
 
-        Map<String, Integer> type_1 = new LinkedHashMap<>();
-        type_1.put("second", 1);
-        type_1.put("first", 2);
+        Map<Integer, Integer> type_1 = new LinkedHashMap<>();
+        type_1.put(entities.encode("second"), 1);
+        type_1.put(entities.encode("first"), 2);
 
-        Map<String, Integer> type_2 = new LinkedHashMap<>();
-        type_2.put("second", 1);
-        type_2.put("third", 2);
-        type_2.put("fourth", 2);
+        Map<Integer, Integer> type_2 = new LinkedHashMap<>();
+        type_2.put(entities.encode("second"), 1);
+        type_2.put(entities.encode("third"), 2);
+        type_2.put(entities.encode("fourth"), 2);
 
         expected.put(InstructionType.BUY, type_1);
         expected.put(InstructionType.SELL, type_2);
 
         assertEquals(expected, result);
     }
+
+    @Test
+    public void rejectInvalidRowsOnceWhenSketched() throws IOException {
+        File file = folder.newFile("instructions.csv");
+        Files.write(file.toPath(), ("Entity,Buy/Sell,AgreedFx,Currency,InstructionDate,SettlementDate,Units,Price per unit\n"
+                + "foo,B,0.50,SGD,01 Oct 2016,04 Oct 2016,200,100.25\n"
+                + "bar,B,0.50,SGD,01 Oct 2016,04 Oct 2016,many,100.25\n"
+                + "baz,S,0.50,SGD,01 Oct 2016,04 Oct 2016,100,1\n").getBytes(StandardCharsets.UTF_8));
+        Dictionary<String> entities = new Dictionary<>();
+        InstructionRejects rejects = new InstructionRejects();
+        ReportService reportService = new ReportService(settlementDateCalculator, valueCalculator,
+                new InstructionCSVDAO(new CSVAccessorConfig(file.getPath()), entities, rejects),
+                entities, new ReportCache(), ReportService.NoRankLimit, 10, new ReportCSVSink(new StringWriter()));
+
+        reportService.generateByReceivedDates(LocalDate.MIN, LocalDate.MAX);
+
+        assertEquals(1, rejects.getCount());
+        assertEquals(Collections.singletonMap("Units: not a number", 1L), rejects.getCounts());
+    }
 }
@@ -0,0 +1,77 @@
+package services.instruction.report;
+
+import models.InstructionType;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static utils.test.TestUtils.getDate;
+
+public class ReportSinkTest {
+
+    private static void write(ReportSink sink) throws IOException {
+        Map<InstructionType, BigDecimal> amounts = new EnumMap<>(InstructionType.class);
+        amounts.put(InstructionType.SELL, new BigDecimal("1E+3"));
+
+        sink.startAmounts();
+        sink.writeAmounts(getDate(2016, 2, 5), amounts);
+        sink.endAmounts();
+        sink.startRanks(InstructionType.SELL);
+        sink.writeRank(InstructionType.SELL, "first, \"quoted\"", 1);
+        sink.endRanks(InstructionType.SELL);
+        sink.flush();
+    }
+
+    @Test
+    public void writeTable() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        write(new ReportTableSink(writer));
+
+        assertEquals("\n" +
+                "Settlement Date     Amount (B)          Amount (S)          \n" +
+                "05 February 2016    0                   1E+3                \n" +
+                "\n" +
+                "Entity              Rank (S)            \n" +
+                "first, \"quoted\"     1                   \n", writer.toString());
+    }
+
+    @Test
+    public void writeCSV() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        write(new ReportCSVSink(writer));
+
+        assertEquals("Settlement Date,Amount (B),Amount (S)\n" +
+                "2016-02-05,0,1000\n" +
+                "\n" +
+                "Entity,Rank (S)\n" +
+                "\"first, \"\"quoted\"\"\",1\n" +
+                "\n", writer.toString());
+    }
+
+    @Test
+    public void writeJsonLines() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        write(new ReportJsonLinesSink(writer));
+
+        assertEquals("{\"record\":\"amounts\",\"settlementDate\":\"2016-02-05\",\"amounts\":{\"B\":0,\"S\":1000}}\n" +
+                "{\"record\":\"rank\",\"instructionType\":\"S\",\"entity\":\"first, \\\"quoted\\\"\",\"rank\":1}\n", writer.toString());
+    }
+
+    @Test
+    public void writeJson() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        write(new ReportJsonSink(writer));
+
+        assertEquals("{\"amounts\":[{\"settlementDate\":\"2016-02-05\",\"amounts\":{\"B\":0,\"S\":1000}}]," +
+                "\"ranks\":{\"S\":[{\"entity\":\"first, \\\"quoted\\\"\",\"rank\":1}]}}\n", writer.toString());
+    }
+}
@@ -0,0 +1,52 @@
+package utils.data;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MapUtilsTest {
+
+    private static Map<Integer, BigDecimal> getAmounts(int size, int distinct) {
+        Random random = new Random(size);
+        Map<Integer, BigDecimal> amounts = new HashMap<>();
+        for (int key = 0; key < size; key++)
+            amounts.put(key, BigDecimal.valueOf(random.nextInt(distinct), random.nextInt(2)));
+        return amounts;
+    }
+
+    private static <K> List<Map.Entry<K, Integer>> head(Map<K, Integer> ranks, int size) {
+        List<Map.Entry<K, Integer>> entries = new ArrayList<>(ranks.entrySet());
+        return entries.subList(0, size);
+    }
+
+    @Test
+    public void zipWithTopRankByValue() {
+        for (int distinct : Arrays.asList(5, 50, 5000)) {
+            Map<Integer, BigDecimal> amounts = getAmounts(1000, distinct);
+            Map<Integer, Integer> ranks = MapUtils.zipWithRankByValue(amounts);
+
+            for (int n : Arrays.asList(1, 10, 50, 999)) {
+                Map<Integer, Integer> topRanks = MapUtils.zipWithTopRankByValue(amounts, n);
+
+                assertEquals(head(ranks, topRanks.size()), new ArrayList<>(topRanks.entrySet()));
+                if (topRanks.size() < ranks.size())
+                    assertTrue(head(ranks, topRanks.size() + 1).get(topRanks.size()).getValue()
+                            > head(ranks, topRanks.size()).get(topRanks.size() - 1).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void zipWithTopRankByValueOfSmallMap() {
+        Map<String, BigDecimal> amounts = new HashMap<>();
+        amounts.put("a", BigDecimal.ONE);
+        amounts.put("b", BigDecimal.TEN);
+
+        assertEquals(MapUtils.zipWithRankByValue(amounts), MapUtils.zipWithTopRankByValue(amounts, 5));
+        assertEquals(Collections.emptyMap(), MapUtils.zipWithTopRankByValue(amounts, 0));
+    }
+}
@@ -0,0 +1,90 @@
+package utils.metrics;
+
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StageMetricsTest {
+
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end)
+            Thread.yield();
+    }
+
+    @Test
+    public void recordCalls() {
+        StageMetrics stage = new StageMetrics("test");
+
+        for (int i = 0; i < 10; i++) {
+            long start = stage.start();
+            busyWait(1_000_000);
+            stage.end(start, 100);
+        }
+        stage.addRejectedRows(3);
+        stage.addBytes(1024);
+
+        assertEquals(10, stage.getCalls());
+        assertEquals(1000, stage.getRows());
+        assertEquals(3, stage.getRejectedRows());
+        assertEquals(1024, stage.getBytes());
+        assertTrue(stage.getTotalTimeMillis() >= 10);
+        assertTrue(stage.getMeanLatencyMicros() >= 1000);
+        assertTrue(stage.getLatencyP50Micros() >= 1000 && stage.getLatencyP50Micros() <= stage.getMaxLatencyMicros());
+        assertTrue(stage.getRowsPerSecond() > 0 && stage.getRowsPerSecond() <= 100_000);
+
+        stage.reset();
+        assertEquals(0, stage.getCalls());
+        assertEquals(0, stage.getRows());
+        assertEquals(0, stage.getLatencyP99Micros(), 0);
+    }
+
+    @Test
+    public void sampleRows() {
+        StageMetrics stage = new StageMetrics("test");
+
+        for (int i = 0; i < 100_000; i++)
+            stage.endSample(stage.startSample());
+
+        assertEquals(100_000, stage.getRows());
+        assertEquals(0, stage.getCalls() % StageMetrics.SampleRate);
+        assertTrue(stage.getCalls() > 50_000 && stage.getCalls() < 150_000);
+    }
+
+    @Test
+    public void estimatePercentilesByBuckets() {
+        StageMetrics stage = new StageMetrics("test");
+
+        for (int i = 0; i < 98; i++)
+            stage.end(System.nanoTime());
+        long start = stage.start();
+        busyWait(5_000_000);
+        stage.end(start);
+        stage.end(start);
+
+        long[] histogram = stage.getLatencyHistogram();
+        long total = 0;
+        for (long count : histogram)
+            total += count;
+        assertEquals(100, total);
+        assertTrue(stage.getLatencyP50Micros() < 1000);
+        assertTrue(stage.getLatencyP99Micros() >= 5000 && stage.getLatencyP99Micros() <= stage.getMaxLatencyMicros());
+    }
+
+    @Test
+    public void registerMBeans() throws JMException {
+        PipelineMetrics.register();
+        PipelineMetrics.register();
+        PipelineMetrics.Parse.addRows(5);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (StageMetrics stage : PipelineMetrics.getStages())
+            assertTrue(server.isRegistered(PipelineMetrics.getObjectName(stage)));
+        assertTrue((Long) server.getAttribute(PipelineMetrics.getObjectName(PipelineMetrics.Parse), "Rows") >= 5);
+    }
+}